@@ -2,20 +2,13 @@ package io.github.sparkrew.fika.api_finder;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.sparkrew.fika.api_finder.utils.NameFilter;
-import io.github.sparkrew.fika.api_finder.utils.PackageMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sootup.core.inputlocation.AnalysisInputLocation;
-import sootup.core.jimple.common.stmt.InvokableStmt;
-import sootup.core.model.SootClass;
-import sootup.core.model.SootMethod;
 import sootup.core.signatures.MethodSignature;
-import sootup.java.bytecode.frontend.inputlocation.JavaClassPathAnalysisInputLocation;
-import sootup.java.core.views.JavaView;
 
 import java.io.File;
-import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -29,103 +22,52 @@ public class AllMethodCallAnalyzer {
 
     /**
      * Provides a detailed breakdown of third-party calls by category.
+     * The invoke instructions are read from the bytecode of the project classes ({@link BytecodeInvokeScanner}),
+     * without building Jimple bodies, on the worker threads of the session.
      *
-     * @param pathToJar      Path to the JAR file to analyze
-     * @param packageName    The project's package name
-     * @param packageMapPath Path to the package map file
+     * @param session The session of the analysis
      */
-    public static void analyzeAndLogDetailed(String pathToJar, String packageName, Path packageMapPath) {
-        Set<String> ignoredPrefixes = PackageMatcher.loadIgnoredPrefixes(packageName);
-        JavaView view = createJavaView(pathToJar);
-        Set<Map.Entry<MethodSignature, MethodSignature>> allCallPairs = new HashSet<>();
-        Map<String, Integer> thirdPartyPackageCount = new HashMap<>();
-        int totalMethods = 0;
-        int methodsWithThirdPartyCalls = 0;
-        for (SootClass sootClass : view.getClasses().toList()) {
-            String classPackage = sootClass.getType().getPackageName().getName();
-            if (!classPackage.startsWith(packageName)) {
-                continue;
-            }
-            for (SootMethod method : sootClass.getMethods()) {
-                if (!method.hasBody()) {
-                    continue;
-                }
-                totalMethods++;
-                MethodSignature callerSignature = method.getSignature();
-                Set<Map.Entry<MethodSignature, MethodSignature>> methodCallPairs = new HashSet<>();
-                try {
-                    for (var stmt : method.getBody().getStmts()) {
-                        if (stmt instanceof InvokableStmt invokableStmt) {
-                            invokableStmt.getInvokeExpr().ifPresent(invokeExpr -> {
-                                MethodSignature targetSignature = invokeExpr.getMethodSignature();
-                                if (isThirdPartyMethod(targetSignature, ignoredPrefixes, packageMapPath)) {
-                                    Map.Entry<MethodSignature, MethodSignature> pair =
-                                            Map.entry(callerSignature, targetSignature);
-                                    allCallPairs.add(pair);
-                                    methodCallPairs.add(pair);
-                                    // Track which third-party packages are being called. We don't need this, but we
-                                    // keep this in case we want to write more details in the paper.
-                                    String targetPackage = targetSignature.getDeclClassType()
-                                            .getPackageName().getName();
-                                    thirdPartyPackageCount.merge(targetPackage, 1, Integer::sum);
-                                }
-                            });
-                        }
-                    }
-                } catch (Exception e) {
-                    log.debug("Failed to analyze method body for {}: {}",
-                            callerSignature, e.getMessage());
-                }
-                if (!methodCallPairs.isEmpty()) {
-                    methodsWithThirdPartyCalls++;
-                }
-            }
+    public static void analyzeAndLogDetailed(AnalysisSession session) {
+        BytecodeInvokeScanner.ScanResult scanResult;
+        long startTime = System.nanoTime();
+        try {
+            // The classifier of the session is shared with the call graph analysis that runs afterwards.
+            scanResult = BytecodeInvokeScanner.scan(session, session.getThirdPartyClassifier());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while scanning the project classes", e);
+            return;
+        } catch (Exception e) {
+            log.error("Failed to scan the project classes", e);
+            return;
         }
-        log.info("Total methods analyzed: {}", totalMethods);
-        log.info("Methods with third-party calls: {}", methodsWithThirdPartyCalls);
+        Set<Map.Entry<MethodSignature, MethodSignature>> allCallPairs = scanResult.callPairs();
+        log.info("Scanned the project bytecode in {} ms",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        log.info("Total methods analyzed: {}", scanResult.totalMethods());
+        log.info("Methods with third-party calls: {}", scanResult.methodsWithThirdPartyCalls());
         log.info("Total unique third-party call pairs: {}", allCallPairs.size());
-        log.info("Number of distinct third-party packages: {}", thirdPartyPackageCount.size());
-//        if (!thirdPartyPackageCount.isEmpty()) {
+        log.info("Number of distinct third-party packages: {}", scanResult.thirdPartyPackageCount().size());
+//        if (!scanResult.thirdPartyPackageCount().isEmpty()) {
 //            log.info("Top third-party packages being called:");
-//            thirdPartyPackageCount.entrySet().stream()
+//            scanResult.thirdPartyPackageCount().entrySet().stream()
 //                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
 //                    .limit(3)
 //                    .forEach(entry -> log.info("  {} - {} unique call pairs",
 //                            entry.getKey(), entry.getValue()));
 //        }
-        // Write all call pairs to JSON file
-        String reportPath = "all_third_party_call_pairs.json";
-        writeCallPairsToJson(allCallPairs, reportPath);
-    }
-
-    private static JavaView createJavaView(String pathToJar) {
-        AnalysisInputLocation inputLocation = new JavaClassPathAnalysisInputLocation(pathToJar);
-        return new JavaView(inputLocation);
-    }
-
-    /**
-     * This is the same method in the MethodExtractor
-     */
-    private static boolean isThirdPartyMethod(MethodSignature method,
-                                              Set<String> ignoredPrefixes,
-                                              Path packageMapPath) {
-        String packageName = method.getDeclClassType().getPackageName().getName();
-        for (String ignore : ignoredPrefixes) {
-            if (packageName.startsWith(ignore)) {
-                return false;
-            }
-        }
-        return PackageMatcher.containsPackage(packageName, packageMapPath);
+        // Write all call pairs to JSON file, next to the report of the session
+        writeCallPairsToJson(allCallPairs, session.getOptions().allCallPairsPath());
     }
 
     /**
      * Writes all unique third-party method call pairs to a JSON file.
      *
      * @param callPairs  Set of unique (caller, third-party method) pairs
-     * @param reportPath Path prefix for the output file
+     * @param outputPath Path of the output file
      */
     private static void writeCallPairsToJson(Set<Map.Entry<MethodSignature, MethodSignature>> callPairs,
-                                             String reportPath) {
+                                             String outputPath) {
         try {
             ObjectMapper mapper = new ObjectMapper();
 
@@ -147,7 +89,6 @@ public class AllMethodCallAnalyzer {
                     })
                     .sorted(Comparator.comparing(p -> p.get("caller")))
                     .collect(Collectors.toList());
-            String outputPath = reportPath.replace(".json", "_all_third_party_calls.json");
             File outputFile = new File(outputPath);
             Map<String, Object> output = new HashMap<>();
             output.put("callPairs", formattedPairs);
@@ -0,0 +1,77 @@
+package io.github.sparkrew.fika.api_finder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The inputs and options of one analysis.
+ *
+ * @param pathToJar            Path to the JAR file or classes directory of the project. Without dependency paths, this
+ *                             is the jar with dependencies.
+ * @param dependencyPaths      The dependency jars (optional, can be empty). Their classes are only loaded when the
+ *                             analysis needs them.
+ * @param reportPath           Path where the analysis report will be written.
+ * @param packageName          The package name of the project under consideration to filter the events.
+ * @param packageMapPath       Path to the package map file that contains the mapping of package names to Maven
+ *                             coordinates.
+ * @param sourceRootPath       Path to the project source code root directory (optional, can be null). If provided,
+ *                             actual source code will be extracted instead of Jimple IR.
+ * @param jacocoHtmlDirs       List of JaCoCo HTML report directories to filter already covered methods (optional, can
+ *                             be empty).
+ * @param jacocoExecFiles      JaCoCo execution data files recorded for the classes in pathToJar (optional, can be
+ *                             empty). The coverage is computed from them, without a report.
+ * @param htmlCoverageFallback Whether calls without line coverage (classes compiled without line numbers, or missing
+ *                             from the XML reports) are checked by name in the HTML reports. Otherwise they are not
+ *                             covered.
+ * @param enableAnalysisLogs   Whether to write the additional analysis logs (skipped paths, coverage log).
+ * @param threads              Number of worker threads for the path search. 1 runs the search serially.
+ * @param callGraphType        The call graph algorithm to use.
+ * @param applicationOnly      If true, the call graph records calls into third-party methods but does not expand their
+ *                             bodies.
+ * @param cacheDir             Directory for the call graph cache (optional, can be null). If provided, the call graph
+ *                             analysis is loaded from there when the inputs did not change, and stored there otherwise.
+ * @param incremental          If true, only the classes that changed since the previous run are analyzed again, and the
+ *                             result is merged into the previous report. Needs the cache directory.
+ */
+public record AnalysisOptions(
+        String pathToJar,
+        List<Path> dependencyPaths,
+        String reportPath,
+        String packageName,
+        Path packageMapPath,
+        String sourceRootPath,
+        List<File> jacocoHtmlDirs,
+        List<Path> jacocoExecFiles,
+        boolean htmlCoverageFallback,
+        boolean enableAnalysisLogs,
+        int threads,
+        CallGraphType callGraphType,
+        boolean applicationOnly,
+        Path cacheDir,
+        boolean incremental
+) {
+
+    /**
+     * Returns the path of the coverage log, next to the report (e.g., {@code third_party_apis_coverage.json} for
+     * {@code third_party_apis.json}), so that analyses with different reports never write the same log.
+     */
+    public String coverageLogPath() {
+        return besideReport("_coverage.json");
+    }
+
+    /**
+     * Returns the path of the overview of all third-party call pairs, next to the report (e.g.,
+     * {@code third_party_apis_all_third_party_calls.json}).
+     */
+    public String allCallPairsPath() {
+        return besideReport("_all_third_party_calls.json");
+    }
+
+    private String besideReport(String suffix) {
+        String base = reportPath.endsWith(".json")
+                ? reportPath.substring(0, reportPath.length() - ".json".length())
+                : reportPath;
+        return base + suffix;
+    }
+}
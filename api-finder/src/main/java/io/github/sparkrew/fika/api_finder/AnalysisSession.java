@@ -0,0 +1,165 @@
+package io.github.sparkrew.fika.api_finder;
+
+import io.github.sparkrew.fika.api_finder.utils.PackageMatcher;
+import io.github.sparkrew.fika.api_finder.utils.ThirdPartyClassifier;
+import sootup.java.core.JavaSootClass;
+import sootup.java.core.views.JavaView;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Everything that belongs to one analysis: the options, the view over the jar, the call graph analysis, and the
+ * caches of the helper classes (the Spoon model, extracted sources, coverage data, the package map, ...).
+ * The helper classes keep their static API and look up their caches with {@link #current()}, which returns the
+ * session bound to the calling thread. There is no process-wide fallback: a helper that is called outside of
+ * {@link #run(Runnable)} fails instead of sharing its caches with other analyses. Sessions do not share any state
+ * (their logs are written next to their own report, see {@link AnalysisOptions#coverageLogPath()}), so several
+ * analyses can run in the same JVM at the same time, each on its own threads. Tasks that a session hands over to other threads have to be bound to the session
+ * there as well (see {@link #bind(Runnable)}).
+ */
+public class AnalysisSession {
+
+    private static final ThreadLocal<AnalysisSession> CURRENT = new ThreadLocal<>();
+
+    private final AnalysisOptions options;
+    // The caches of the helper classes, keyed by the class that holds them
+    private final Map<Class<?>, Object> states = new ConcurrentHashMap<>();
+    private ProjectView view;
+    private Set<String> ignoredPrefixes;
+    private ThirdPartyClassifier thirdPartyClassifier;
+    private CallGraphCache.CallGraphData callGraphData;
+
+    public AnalysisSession(AnalysisOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Returns the session bound to the calling thread.
+     *
+     * @throws IllegalStateException if no session is bound to the calling thread.
+     */
+    public static AnalysisSession current() {
+        AnalysisSession session = CURRENT.get();
+        if (session == null) {
+            throw new IllegalStateException("No analysis session is bound to thread "
+                    + Thread.currentThread().getName());
+        }
+        return session;
+    }
+
+    public AnalysisOptions getOptions() {
+        if (options == null) {
+            throw new IllegalStateException("This session has no analysis options");
+        }
+        return options;
+    }
+
+    /**
+     * Returns the view over the project classes and the dependency jars. The view is created on first use and shared
+     * by all steps of the analysis, so every class is parsed once.
+     */
+    public synchronized JavaView getView() {
+        return getProjectView();
+    }
+
+    /**
+     * Returns the classes of the project input (the jar or classes directory). Dependency classes are not enumerated,
+     * unless they are part of the project input, as in a jar with dependencies.
+     */
+    public List<JavaSootClass> getApplicationClasses() {
+        return getProjectView().getApplicationClasses();
+    }
+
+    private synchronized ProjectView getProjectView() {
+        if (view == null) {
+            view = ProjectView.create(getOptions().pathToJar(), getOptions().dependencyPaths());
+        }
+        return view;
+    }
+
+    /**
+     * Returns the package prefixes that are never third-party (the ignored packages and the project package).
+     */
+    public synchronized Set<String> getIgnoredPrefixes() {
+        if (ignoredPrefixes == null) {
+            ignoredPrefixes = PackageMatcher.loadIgnoredPrefixes(getOptions().packageName());
+        }
+        return ignoredPrefixes;
+    }
+
+    /**
+     * Returns the classifier for third-party methods. It memoizes its verdicts, so it is shared by all steps of the
+     * analysis.
+     */
+    public synchronized ThirdPartyClassifier getThirdPartyClassifier() {
+        if (thirdPartyClassifier == null) {
+            thirdPartyClassifier = new ThirdPartyClassifier(getIgnoredPrefixes(), getOptions().packageMapPath());
+        }
+        return thirdPartyClassifier;
+    }
+
+    /**
+     * Returns the call graph analysis, or null if it was not built (or loaded) yet.
+     */
+    public synchronized CallGraphCache.CallGraphData getCallGraphData() {
+        return callGraphData;
+    }
+
+    public synchronized void setCallGraphData(CallGraphCache.CallGraphData callGraphData) {
+        this.callGraphData = callGraphData;
+    }
+
+    /**
+     * Returns the state of the given type that belongs to this session, and creates it on first use.
+     * Helper classes keep their caches in a private class and use that class as the key.
+     */
+    public <T> T state(Class<T> type, Supplier<T> factory) {
+        return type.cast(states.computeIfAbsent(type, k -> factory.get()));
+    }
+
+    /**
+     * Runs the task with this session bound to the calling thread.
+     */
+    public void run(Runnable task) {
+        AnalysisSession previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Calls the task with this session bound to the calling thread.
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        AnalysisSession previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Wraps the task so that it runs with this session bound, on whichever thread it is executed.
+     */
+    public Runnable bind(Runnable task) {
+        return () -> run(task);
+    }
+
+    private static void restore(AnalysisSession previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
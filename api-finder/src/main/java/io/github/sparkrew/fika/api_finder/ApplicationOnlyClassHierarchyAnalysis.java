@@ -0,0 +1,56 @@
+package io.github.sparkrew.fika.api_finder;
+
+import sootup.callgraph.ClassHierarchyAnalysisAlgorithm;
+import sootup.callgraph.MutableCallGraph;
+import sootup.core.jimple.common.stmt.InvokableStmt;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.views.View;
+
+import java.util.Deque;
+import java.util.function.Predicate;
+
+/**
+ * Class hierarchy analysis that stops at the third-party boundary.
+ * The input jar contains all dependencies, so the plain CHA keeps resolving and expanding library method bodies that
+ * we never report on (our paths end at the first third-party call). Here, a call into a third-party method is still
+ * recorded as an edge, but the third-party method is never added to the work list, so its body is never resolved.
+ * Calls that go through library code and back into the project (e.g., callbacks) are lost. Such project methods can
+ * only be reached from third-party callers, which the backward search skips anyway.
+ */
+public class ApplicationOnlyClassHierarchyAnalysis extends ClassHierarchyAnalysisAlgorithm {
+
+    private final Predicate<MethodSignature> isThirdParty;
+
+    public ApplicationOnlyClassHierarchyAnalysis(View view, Predicate<MethodSignature> isThirdParty) {
+        super(view);
+        this.isThirdParty = isThirdParty;
+    }
+
+    @Override
+    protected void addCallToCG(MethodSignature source, MethodSignature target, InvokableStmt invokableStmt,
+                               MutableCallGraph cg, Deque<MethodSignature> workList) {
+        if (isThirdParty.test(target)) {
+            addBoundaryCall(source, target, invokableStmt, cg, workList);
+        } else {
+            super.addCallToCG(source, target, invokableStmt, cg, workList);
+        }
+    }
+
+    /**
+     * Records a call into a third-party method. Same as the default addCallToCG, except that the third-party target
+     * is not pushed to the work list.
+     */
+    static void addBoundaryCall(MethodSignature source, MethodSignature target, InvokableStmt invokableStmt,
+                                MutableCallGraph cg, Deque<MethodSignature> workList) {
+        if (!cg.containsMethod(source)) {
+            cg.addMethod(source);
+            workList.push(source);
+        }
+        if (!cg.containsMethod(target)) {
+            cg.addMethod(target);
+        }
+        if (!cg.containsCall(source, target, invokableStmt)) {
+            cg.addCall(source, target, invokableStmt);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.sparkrew.fika.api_finder;
+
+import sootup.callgraph.MutableCallGraph;
+import sootup.callgraph.RapidTypeAnalysisAlgorithm;
+import sootup.core.jimple.common.stmt.InvokableStmt;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.views.View;
+
+import java.util.Deque;
+import java.util.function.Predicate;
+
+/**
+ * Rapid type analysis that stops at the third-party boundary, the same way as
+ * {@link ApplicationOnlyClassHierarchyAnalysis}. Since library bodies are never processed, classes that are only
+ * instantiated inside library code are not seen as instantiated. Virtual calls from project code can then miss
+ * targets in such classes.
+ */
+public class ApplicationOnlyRapidTypeAnalysis extends RapidTypeAnalysisAlgorithm {
+
+    private final Predicate<MethodSignature> isThirdParty;
+
+    public ApplicationOnlyRapidTypeAnalysis(View view, Predicate<MethodSignature> isThirdParty) {
+        super(view);
+        this.isThirdParty = isThirdParty;
+    }
+
+    @Override
+    protected void addCallToCG(MethodSignature source, MethodSignature target, InvokableStmt invokableStmt,
+                               MutableCallGraph cg, Deque<MethodSignature> workList) {
+        if (isThirdParty.test(target)) {
+            ApplicationOnlyClassHierarchyAnalysis.addBoundaryCall(source, target, invokableStmt, cg, workList);
+        } else {
+            super.addCallToCG(source, target, invokableStmt, cg, workList);
+        }
+    }
+}
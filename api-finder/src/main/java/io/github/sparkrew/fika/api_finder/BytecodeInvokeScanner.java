@@ -0,0 +1,212 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.core.JavaIdentifierFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Finds the calls to third-party methods in the project classes by reading the invoke instructions straight from
+ * the class files with ASM. No Jimple body is built, so this is much cheaper than walking the SootUp bodies, and the
+ * classes are independent, so they are scanned in parallel. Each worker fills its own accumulator, and the
+ * accumulators are merged at the end, so the workers never contend on shared collections.
+ * The signatures are created with the {@link JavaIdentifierFactory} from the owner and descriptor of each
+ * instruction, which is what SootUp records for the same call. Invokedynamic instructions are skipped: they do not
+ * name the called method.
+ */
+public class BytecodeInvokeScanner {
+
+    private static final Logger log = LoggerFactory.getLogger(BytecodeInvokeScanner.class);
+
+    /**
+     * Scans the project classes of the session's input (the jar or classes directory). The classifier is called on
+     * the worker threads with the session bound, so it may use the session's state.
+     *
+     * @param session      The session of the analysis.
+     * @param isThirdParty Decides whether a called method is third-party. It must be thread-safe.
+     * @return The (caller, third-party method) pairs and the call statistics.
+     */
+    public static ScanResult scan(AnalysisSession session, Predicate<MethodSignature> isThirdParty)
+            throws IOException, InterruptedException, ExecutionException {
+        AnalysisOptions options = session.getOptions();
+        List<byte[]> classFiles = readProjectClassFiles(options.pathToJar(), options.packageName());
+        Accumulator accumulator;
+        int threads = options.threads();
+        if (threads <= 1) {
+            accumulator = new Accumulator();
+            for (byte[] classFile : classFiles) {
+                scanClass(classFile, isThirdParty, accumulator);
+            }
+        } else {
+            // Each task binds the session itself, as the pool threads do not belong to the session.
+            log.info("Scanning {} classes with {} threads", classFiles.size(), threads);
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                accumulator = pool.submit(() -> classFiles.parallelStream().collect(Accumulator::new,
+                        (partial, classFile) -> session.run(() -> scanClass(classFile, isThirdParty, partial)),
+                        Accumulator::merge)).get();
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return new ScanResult(accumulator.callPairs, accumulator.thirdPartyPackageCount,
+                accumulator.totalMethods, accumulator.methodsWithThirdPartyCalls);
+    }
+
+    /**
+     * Reads the class files of the given package from a jar or a classes directory.
+     */
+    static List<byte[]> readProjectClassFiles(String pathToJar, String packageName) throws IOException {
+        List<byte[]> classFiles = new ArrayList<>();
+        Path input = Path.of(pathToJar);
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> files = Files.walk(input)) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    String name = input.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (isProjectClassFile(name, packageName)) {
+                        classFiles.add(Files.readAllBytes(file));
+                    }
+                }
+            }
+            return classFiles;
+        }
+        try (JarFile jarFile = new JarFile(pathToJar)) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (isProjectClassFile(entry.getName(), packageName)) {
+                    try (InputStream in = jarFile.getInputStream(entry)) {
+                        classFiles.add(in.readAllBytes());
+                    }
+                }
+            }
+        }
+        return classFiles;
+    }
+
+    private static boolean isProjectClassFile(String name, String packageName) {
+        // Multi-release variants and module descriptors are not analyzed
+        if (!name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+            return false;
+        }
+        int lastSlash = name.lastIndexOf('/');
+        String classPackage = lastSlash < 0 ? "" : name.substring(0, lastSlash).replace('/', '.');
+        return classPackage.startsWith(packageName);
+    }
+
+    private static void scanClass(byte[] classFile, Predicate<MethodSignature> isThirdParty,
+                                  Accumulator accumulator) {
+        try {
+            new ClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM9) {
+                private String className;
+
+                @Override
+                public void visit(int version, int access, String name, String signature, String superName,
+                                  String[] interfaces) {
+                    className = name;
+                }
+
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                                 String[] exceptions) {
+                    // Abstract and native methods have no body to scan
+                    if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) {
+                        return null;
+                    }
+                    accumulator.totalMethods++;
+                    MethodSignature caller = toSignature(className, name, descriptor);
+                    return new MethodVisitor(Opcodes.ASM9) {
+                        private boolean callsThirdParty;
+
+                        @Override
+                        public void visitMethodInsn(int opcode, String owner, String name, String descriptor,
+                                                    boolean isInterface) {
+                            MethodSignature target = toSignature(owner, name, descriptor);
+                            if (!isThirdParty.test(target)) {
+                                return;
+                            }
+                            accumulator.callPairs.add(Map.entry(caller, target));
+                            // Track which third-party packages are being called. We don't need this, but we keep this
+                            // in case we want to write more details in the paper.
+                            accumulator.thirdPartyPackageCount.merge(
+                                    target.getDeclClassType().getPackageName().getName(), 1, Integer::sum);
+                            callsThirdParty = true;
+                        }
+
+                        @Override
+                        public void visitEnd() {
+                            if (callsThirdParty) {
+                                accumulator.methodsWithThirdPartyCalls++;
+                            }
+                        }
+                    };
+                }
+            }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        } catch (RuntimeException e) {
+            log.debug("Failed to scan class file: {}", e.getMessage());
+        }
+    }
+
+    private static MethodSignature toSignature(String owner, String name, String descriptor) {
+        // Methods called on arrays (e.g., clone) are declared by Object, as in Jimple
+        String className = owner.startsWith("[") ? "java.lang.Object" : Type.getObjectType(owner).getClassName();
+        Type methodType = Type.getMethodType(descriptor);
+        List<String> parameterTypes = Arrays.stream(methodType.getArgumentTypes())
+                .map(Type::getClassName)
+                .toList();
+        return JavaIdentifierFactory.getInstance().getMethodSignature(className, name,
+                methodType.getReturnType().getClassName(), parameterTypes);
+    }
+
+    /**
+     * The partial result of the classes scanned by one worker. It is only used by that worker until it is merged.
+     */
+    private static class Accumulator {
+        private final Set<Map.Entry<MethodSignature, MethodSignature>> callPairs = new HashSet<>();
+        private final Map<String, Integer> thirdPartyPackageCount = new HashMap<>();
+        private int totalMethods;
+        private int methodsWithThirdPartyCalls;
+
+        private void merge(Accumulator other) {
+            callPairs.addAll(other.callPairs);
+            other.thirdPartyPackageCount.forEach((packageName, count) ->
+                    thirdPartyPackageCount.merge(packageName, count, Integer::sum));
+            totalMethods += other.totalMethods;
+            methodsWithThirdPartyCalls += other.methodsWithThirdPartyCalls;
+        }
+    }
+
+    /**
+     * The result of a scan.
+     *
+     * @param callPairs                  The unique (caller, third-party method) pairs.
+     * @param thirdPartyPackageCount     The number of third-party calls per called package.
+     * @param totalMethods               The number of scanned methods with a body.
+     * @param methodsWithThirdPartyCalls The number of methods that call at least one third-party method.
+     */
+    public record ScanResult(
+            Set<Map.Entry<MethodSignature, MethodSignature>> callPairs,
+            Map<String, Integer> thirdPartyPackageCount,
+            int totalMethods,
+            int methodsWithThirdPartyCalls
+    ) {
+    }
+}
@@ -0,0 +1,369 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.types.Type;
+import sootup.java.core.JavaIdentifierFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of the call graph analysis of a jar: the entry points, the project call graph, the third-party call
+ * pairs with the source lines of their calls and the number of calls to each third-party method per class (both
+ * needed by the coverage filter).
+ * A cache file is named after a SHA-256 hash of the jar (or classes directory) content, the dependency jars, the
+ * package map content, the package name, the ignored prefixes and the call graph options, so any change to the inputs
+ * leads to a new file (and a full analysis) instead of a stale result. Old files are not deleted.
+ * The file is a binary stream: all strings are written once into a table and the rest of the file refers to them
+ * by index. Signatures are rebuilt with the {@link JavaIdentifierFactory}, so they are equal to the ones SootUp
+ * would create for the same jar.
+ */
+public class CallGraphCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CallGraphCache.class);
+    private static final int MAGIC = 0x46494b41; // "FIKA"
+    // Bump this whenever the layout of the file or the analysis that produces its content changes.
+    private static final int FORMAT_VERSION = 2;
+    private static final String FILE_EXTENSION = ".fcg";
+
+    private final Path cacheFile;
+
+    private CallGraphCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Creates the cache for the given analysis inputs. This reads the whole jar (or classes directory) to hash it.
+     * Dependency jars are identified by their path, size and modification time only, as they are usually much larger
+     * and do not change in place.
+     *
+     * @param cacheDir        Directory where the cache files are kept. It is created if it does not exist.
+     * @param pathToJar       The analyzed jar or classes directory.
+     * @param dependencyPaths The dependency jars.
+     * @param packageMapPath  The package map used to classify third-party methods.
+     * @param packageName     The package name of the project.
+     * @param ignoredPrefixes The package prefixes that are never third-party.
+     * @param callGraphType   The call graph algorithm.
+     * @param applicationOnly Whether the call graph stops at third-party methods.
+     */
+    public static CallGraphCache forInputs(Path cacheDir, String pathToJar, List<Path> dependencyPaths,
+                                           Path packageMapPath, String packageName, Set<String> ignoredPrefixes,
+                                           CallGraphType callGraphType, boolean applicationOnly) throws IOException {
+        MessageDigest digest = newDigest();
+        updateDigest(digest, "version:" + FORMAT_VERSION);
+        Path input = Path.of(pathToJar);
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> files = Files.walk(input)) {
+                for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                    updateDigest(digest, "class:" + input.relativize(file));
+                    digestFile(digest, file);
+                }
+            }
+        } else {
+            digestFile(digest, input);
+        }
+        for (Path dependency : dependencyPaths) {
+            updateDigest(digest, "dependency:" + fingerprint(dependency));
+        }
+        if (packageMapPath != null && Files.isRegularFile(packageMapPath)) {
+            digestFile(digest, packageMapPath);
+        }
+        updateDigest(digest, "package:" + packageName);
+        // Sorted, so the key does not depend on the iteration order of the set.
+        updateDigest(digest, "ignored:" + String.join(",", new TreeSet<>(ignoredPrefixes)));
+        updateDigest(digest, "callGraph:" + callGraphType + ":" + applicationOnly);
+        Files.createDirectories(cacheDir);
+        return new CallGraphCache(cacheDir.resolve(HexFormat.of().formatHex(digest.digest()) + FILE_EXTENSION));
+    }
+
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Loads the cached analysis. Returns null if there is no cache file for these inputs, or if it cannot be read.
+     */
+    public CallGraphData load() {
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            return read(in);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read call graph cache {}, the jar will be analyzed again", cacheFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the analysis to the cache file. The file is written next to the target and then moved, so a run that is
+     * killed half-way never leaves a truncated cache behind. Failures are logged, as the cache is only an optimization.
+     */
+    public void store(CallGraphData analysis) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(cacheFile.getParent(), "callgraph", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                write(out, analysis);
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Stored call graph cache in {}", cacheFile);
+        } catch (IOException e) {
+            log.warn("Could not write call graph cache {}", cacheFile, e);
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // Nothing else to clean up
+                }
+            }
+        }
+    }
+
+    static void write(DataOutputStream out, CallGraphData analysis) throws IOException {
+        CompactCallGraph graph = analysis.projectCallGraph();
+        // The project methods come first and keep their IDs, so the graph is rebuilt with the same IDs (and the
+        // same search order) as the original.
+        SignatureTable signatures = new SignatureTable();
+        for (int id = 0; id < graph.methodCount(); id++) {
+            signatures.add(graph.methodOf(id));
+        }
+        analysis.entryPoints().forEach(signatures::add);
+        for (Map.Entry<MethodSignature, MethodSignature> pair : analysis.thirdPartyPairs()) {
+            signatures.add(pair.getKey());
+            signatures.add(pair.getValue());
+        }
+        analysis.targetCallCounts().forEach((className, counts) -> {
+            signatures.strings.add(className);
+            counts.keySet().forEach(signatures.strings::add);
+        });
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(signatures.strings.size());
+        for (String string : signatures.strings.values()) {
+            out.writeUTF(string);
+        }
+        out.writeInt(signatures.size());
+        for (MethodSignature method : signatures.methods.values()) {
+            out.writeInt(signatures.strings.indexOf(method.getDeclClassType().getFullyQualifiedName()));
+            out.writeInt(signatures.strings.indexOf(method.getName()));
+            out.writeInt(signatures.strings.indexOf(method.getType().toString()));
+            out.writeInt(method.getParameterTypes().size());
+            for (Type parameterType : method.getParameterTypes()) {
+                out.writeInt(signatures.strings.indexOf(parameterType.toString()));
+            }
+        }
+
+        out.writeInt(graph.methodCount());
+        for (int id = 0; id < graph.methodCount(); id++) {
+            out.writeInt(graph.calleesEnd(id) - graph.calleesStart(id));
+            for (int i = graph.calleesStart(id); i < graph.calleesEnd(id); i++) {
+                out.writeInt(graph.calleeAt(i));
+            }
+        }
+
+        out.writeInt(analysis.entryPoints().size());
+        for (MethodSignature entryPoint : analysis.entryPoints()) {
+            out.writeInt(signatures.methods.indexOf(entryPoint));
+        }
+
+        // The pairs are written in iteration order and read back into a LinkedHashSet, so the later steps see them in
+        // the same order as in the run that built the cache.
+        out.writeInt(analysis.thirdPartyPairs().size());
+        for (Map.Entry<MethodSignature, MethodSignature> pair : analysis.thirdPartyPairs()) {
+            out.writeInt(signatures.methods.indexOf(pair.getKey()));
+            out.writeInt(signatures.methods.indexOf(pair.getValue()));
+            int[] lines = analysis.callSiteLines().getOrDefault(pair, new int[0]);
+            out.writeInt(lines.length);
+            for (int line : lines) {
+                out.writeInt(line);
+            }
+        }
+
+        out.writeInt(analysis.targetCallCounts().size());
+        for (Map.Entry<String, Map<String, Integer>> classCounts : analysis.targetCallCounts().entrySet()) {
+            out.writeInt(signatures.strings.indexOf(classCounts.getKey()));
+            out.writeInt(classCounts.getValue().size());
+            for (Map.Entry<String, Integer> count : classCounts.getValue().entrySet()) {
+                out.writeInt(signatures.strings.indexOf(count.getKey()));
+                out.writeInt(count.getValue());
+            }
+        }
+    }
+
+    static CallGraphData read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a call graph cache file");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported call graph cache version " + version);
+        }
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        JavaIdentifierFactory identifierFactory = JavaIdentifierFactory.getInstance();
+        MethodSignature[] methods = new MethodSignature[in.readInt()];
+        for (int i = 0; i < methods.length; i++) {
+            String className = strings[in.readInt()];
+            String name = strings[in.readInt()];
+            String returnType = strings[in.readInt()];
+            List<String> parameterTypes = new ArrayList<>();
+            int parameterCount = in.readInt();
+            for (int p = 0; p < parameterCount; p++) {
+                parameterTypes.add(strings[in.readInt()]);
+            }
+            methods[i] = identifierFactory.getMethodSignature(className, name, returnType, parameterTypes);
+        }
+
+        CompactCallGraph.Builder graphBuilder = new CompactCallGraph.Builder();
+        int graphMethodCount = in.readInt();
+        for (int id = 0; id < graphMethodCount; id++) {
+            graphBuilder.addMethod(methods[id]);
+        }
+        for (int id = 0; id < graphMethodCount; id++) {
+            int calleeCount = in.readInt();
+            for (int i = 0; i < calleeCount; i++) {
+                graphBuilder.addCall(id, in.readInt());
+            }
+        }
+
+        int entryPointCount = in.readInt();
+        Set<MethodSignature> entryPoints = new HashSet<>();
+        for (int i = 0; i < entryPointCount; i++) {
+            entryPoints.add(methods[in.readInt()]);
+        }
+
+        int pairCount = in.readInt();
+        Set<Map.Entry<MethodSignature, MethodSignature>> thirdPartyPairs = new LinkedHashSet<>();
+        Map<Map.Entry<MethodSignature, MethodSignature>, int[]> callSiteLines = new HashMap<>();
+        for (int i = 0; i < pairCount; i++) {
+            Map.Entry<MethodSignature, MethodSignature> pair = Map.entry(methods[in.readInt()], methods[in.readInt()]);
+            thirdPartyPairs.add(pair);
+            int[] lines = new int[in.readInt()];
+            for (int l = 0; l < lines.length; l++) {
+                lines[l] = in.readInt();
+            }
+            if (lines.length > 0) {
+                callSiteLines.put(pair, lines);
+            }
+        }
+
+        int classCount = in.readInt();
+        Map<String, Map<String, Integer>> targetCallCounts = new HashMap<>();
+        for (int i = 0; i < classCount; i++) {
+            Map<String, Integer> counts = targetCallCounts.computeIfAbsent(strings[in.readInt()],
+                    k -> new HashMap<>());
+            int countSize = in.readInt();
+            for (int c = 0; c < countSize; c++) {
+                counts.put(strings[in.readInt()], in.readInt());
+            }
+        }
+        return new CallGraphData(entryPoints, graphBuilder.build(), thirdPartyPairs, targetCallCounts,
+                callSiteLines);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Identifies a file by its absolute path, size and modification time, without reading it.
+     */
+    static String fingerprint(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return file.toAbsolutePath() + ":missing";
+        }
+        return file.toAbsolutePath() + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    private static void digestFile(MessageDigest digest, Path file) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        digest.update((byte) 0);
+    }
+
+    /**
+     * The parts of the analysis that are stored in the cache.
+     *
+     * @param entryPoints      The public methods of the project.
+     * @param projectCallGraph The call graph between project methods.
+     * @param thirdPartyPairs  All (caller, third-party method) pairs before coverage filtering.
+     * @param targetCallCounts Number of calls per third-party method (with parameters) for each caller class.
+     * @param callSiteLines    The sorted source lines of the calls of each pair. Pairs without line numbers are
+     *                         missing.
+     */
+    public record CallGraphData(Set<MethodSignature> entryPoints, CompactCallGraph projectCallGraph,
+                                 Set<Map.Entry<MethodSignature, MethodSignature>> thirdPartyPairs,
+                                 Map<String, Map<String, Integer>> targetCallCounts,
+                                 Map<Map.Entry<MethodSignature, MethodSignature>, int[]> callSiteLines) {
+    }
+
+    /**
+     * Interns strings and signatures while writing, so each one is written once and referred to by index.
+     */
+    private static class SignatureTable {
+        final IndexedSet<String> strings = new IndexedSet<>();
+        final IndexedSet<MethodSignature> methods = new IndexedSet<>();
+
+        void add(MethodSignature method) {
+            if (methods.add(method)) {
+                strings.add(method.getDeclClassType().getFullyQualifiedName());
+                strings.add(method.getName());
+                strings.add(method.getType().toString());
+                method.getParameterTypes().forEach(type -> strings.add(type.toString()));
+            }
+        }
+
+        int size() {
+            return methods.size();
+        }
+    }
+
+    private static class IndexedSet<T> {
+        private final Map<T, Integer> indexes = new LinkedHashMap<>();
+
+        boolean add(T value) {
+            return indexes.putIfAbsent(value, indexes.size()) == null;
+        }
+
+        int indexOf(T value) {
+            return indexes.get(value);
+        }
+
+        int size() {
+            return indexes.size();
+        }
+
+        Collection<T> values() {
+            return indexes.keySet();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.sparkrew.fika.api_finder;
+
+import sootup.callgraph.CallGraphAlgorithm;
+import sootup.callgraph.ClassHierarchyAnalysisAlgorithm;
+import sootup.callgraph.RapidTypeAnalysisAlgorithm;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.views.View;
+
+import java.util.function.Predicate;
+
+/**
+ * The call graph algorithms that can be used for the analysis.
+ * CHA dispatches a virtual call to every subtype in the class hierarchy. RTA only dispatches to classes that are
+ * instantiated in reachable code, which gives a smaller graph (and fewer paths) at the cost of missing some targets.
+ */
+public enum CallGraphType {
+    CHA,
+    RTA;
+
+    /**
+     * Creates the algorithm for the given view.
+     *
+     * @param view            The view over the analyzed jar.
+     * @param applicationOnly If true, calls into third-party methods are recorded but their bodies are not expanded.
+     * @param isThirdParty    Tells which methods are third-party methods (only used in application-only mode).
+     */
+    public CallGraphAlgorithm create(View view, boolean applicationOnly, Predicate<MethodSignature> isThirdParty) {
+        return switch (this) {
+            case CHA -> applicationOnly
+                    ? new ApplicationOnlyClassHierarchyAnalysis(view, isThirdParty)
+                    : new ClassHierarchyAnalysisAlgorithm(view);
+            case RTA -> applicationOnly
+                    ? new ApplicationOnlyRapidTypeAnalysis(view, isThirdParty)
+                    : new RapidTypeAnalysisAlgorithm(view);
+        };
+    }
+}
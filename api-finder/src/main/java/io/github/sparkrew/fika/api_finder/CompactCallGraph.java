@@ -0,0 +1,187 @@
+package io.github.sparkrew.fika.api_finder;
+
+import sootup.core.signatures.MethodSignature;
+
+import java.util.*;
+
+/**
+ * A compact, read-only copy of the project part of a call graph.
+ * Every method signature is interned to a dense int ID and the forward (caller to callee) and reverse (callee to
+ * caller) edges are stored as compressed sparse rows: the callees of method {@code id} are
+ * {@code calleeAt(calleesStart(id))} to {@code calleeAt(calleesEnd(id) - 1)}, and the same for the callers.
+ * Each row is sorted by ID and has no duplicates (several call sites between the same two methods become one edge).
+ * Only project methods are added to the graph (third-party methods are dropped while the call graph is swept), so
+ * traversals don't have to check every edge.
+ */
+public class CompactCallGraph {
+
+    private final MethodSignature[] methods;
+    private final Map<MethodSignature, Integer> ids;
+    private final int[] calleeOffsets;
+    private final int[] callees;
+    private final int[] callerOffsets;
+    private final int[] callers;
+
+    private CompactCallGraph(MethodSignature[] methods, Map<MethodSignature, Integer> ids,
+                             int[] calleeOffsets, int[] callees, int[] callerOffsets, int[] callers) {
+        this.methods = methods;
+        this.ids = ids;
+        this.calleeOffsets = calleeOffsets;
+        this.callees = callees;
+        this.callerOffsets = callerOffsets;
+        this.callers = callers;
+    }
+
+    /**
+     * Returns the ID of the given method, or -1 if the method is not part of the graph.
+     */
+    public int idOf(MethodSignature method) {
+        Integer id = ids.get(method);
+        return id == null ? -1 : id;
+    }
+
+    public MethodSignature methodOf(int id) {
+        return methods[id];
+    }
+
+    public int methodCount() {
+        return methods.length;
+    }
+
+    public int edgeCount() {
+        return callees.length;
+    }
+
+    public int calleesStart(int id) {
+        return calleeOffsets[id];
+    }
+
+    public int calleesEnd(int id) {
+        return calleeOffsets[id + 1];
+    }
+
+    public int calleeAt(int index) {
+        return callees[index];
+    }
+
+    public int callersStart(int id) {
+        return callerOffsets[id];
+    }
+
+    public int callersEnd(int id) {
+        return callerOffsets[id + 1];
+    }
+
+    public int callerAt(int index) {
+        return callers[index];
+    }
+
+    /**
+     * Returns a bitset with the IDs of the given methods that are part of the graph.
+     */
+    public BitSet toBitSet(Collection<MethodSignature> methodSet) {
+        BitSet bits = new BitSet(methods.length);
+        for (MethodSignature method : methodSet) {
+            int id = idOf(method);
+            if (id >= 0) {
+                bits.set(id);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Collects methods and edges and packs them into a CompactCallGraph. Edges are kept in two parallel int arrays
+     * until the graph is built, so adding an edge does not allocate.
+     */
+    public static class Builder {
+        private final Map<MethodSignature, Integer> ids = new HashMap<>();
+        private final List<MethodSignature> methods = new ArrayList<>();
+        private int[] edgeSources = new int[1024];
+        private int[] edgeTargets = new int[1024];
+        private int edgeCount = 0;
+
+        /**
+         * Interns the method and returns its ID. Adding the same method again returns the same ID.
+         */
+        public int addMethod(MethodSignature method) {
+            Integer id = ids.get(method);
+            if (id != null) {
+                return id;
+            }
+            int newId = methods.size();
+            ids.put(method, newId);
+            methods.add(method);
+            return newId;
+        }
+
+        /**
+         * Returns the ID of an already added method, or -1.
+         */
+        public int idOf(MethodSignature method) {
+            Integer id = ids.get(method);
+            return id == null ? -1 : id;
+        }
+
+        public void addCall(MethodSignature caller, MethodSignature callee) {
+            addCall(addMethod(caller), addMethod(callee));
+        }
+
+        public void addCall(int callerId, int calleeId) {
+            if (edgeCount == edgeSources.length) {
+                edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+                edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+            }
+            edgeSources[edgeCount] = callerId;
+            edgeTargets[edgeCount] = calleeId;
+            edgeCount++;
+        }
+
+        public CompactCallGraph build() {
+            int methodCount = methods.size();
+            int[][] forward = toCompressedRows(methodCount, edgeSources, edgeTargets, edgeCount);
+            int[][] reverse = toCompressedRows(methodCount, edgeTargets, edgeSources, edgeCount);
+            return new CompactCallGraph(methods.toArray(new MethodSignature[0]), new HashMap<>(ids),
+                    forward[0], forward[1], reverse[0], reverse[1]);
+        }
+
+        /**
+         * Groups the edges by their row node with a counting sort, then sorts and de-duplicates every row.
+         * Returns {offsets, columns}.
+         */
+        private static int[][] toCompressedRows(int nodeCount, int[] rows, int[] columns, int count) {
+            int[] offsets = new int[nodeCount + 1];
+            for (int i = 0; i < count; i++) {
+                offsets[rows[i] + 1]++;
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] next = Arrays.copyOf(offsets, nodeCount);
+            int[] grouped = new int[count];
+            for (int i = 0; i < count; i++) {
+                grouped[next[rows[i]]++] = columns[i];
+            }
+            // Sort each row and drop duplicates in place. The compacted rows are written from the front, so the
+            // read position is always ahead of the write position.
+            int write = 0;
+            int[] compactOffsets = new int[nodeCount + 1];
+            for (int node = 0; node < nodeCount; node++) {
+                int start = offsets[node];
+                int end = offsets[node + 1];
+                Arrays.sort(grouped, start, end);
+                compactOffsets[node] = write;
+                int previous = -1;
+                for (int i = start; i < end; i++) {
+                    int column = grouped[i];
+                    if (column != previous) {
+                        grouped[write++] = column;
+                        previous = column;
+                    }
+                }
+            }
+            compactOffsets[nodeCount] = write;
+            return new int[][]{compactOffsets, Arrays.copyOf(grouped, write)};
+        }
+    }
+}
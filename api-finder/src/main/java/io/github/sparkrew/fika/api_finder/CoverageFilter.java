@@ -1,19 +1,14 @@
 package io.github.sparkrew.fika.api_finder;
 
 import io.github.sparkrew.fika.api_finder.utils.CoverageLogger;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.NodeList;
 import sootup.core.signatures.MethodSignature;
 import sootup.core.types.Type;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -22,38 +17,78 @@ import static io.github.sparkrew.fika.api_finder.utils.NameFilter.filterName;
 
 /**
  * CoverageFilter checks if methods are already covered by tests using JaCoCo reports.
- * It uses both HTML and XML reports to determine coverage status.
+ * When the source lines of the calls are known (from the line numbers in the bytecode), they are looked up directly
+ * in the coverage of all XML reports and the JaCoCo execution data (see {@link #useExecutionData(CoverageIndex)}),
+ * merged once per session into one index (see {@link #loadCoverage(List)}). Calls without known lines, or in classes
+ * that no report has, are not covered, unless the HTML fallback is enabled ({@code --html-coverage-fallback}): it
+ * uses both HTML and XML reports to determine coverage status, for classes compiled without line numbers and report
+ * directories without {@code jacoco.xml}.
  * Caches results for performance optimization.
- * ToDo: This class can be optimized in many ways. One easy way is to record the line number where the target method is
- *       called when we extract the method sources, and then directly check with the XML file, instead of trying to
- *       parse the HTML. Then we could also remove all the complicated logic to handle superclasses, etc. The accuracy
- *       will also be improved.
  */
 public class CoverageFilter {
 
     private static final Logger log = LoggerFactory.getLogger(CoverageFilter.class);
-    // Cache - Map<htmlFilePath, Map<thirdPartyMethod, isCovered>>
-    private static final Map<String, Map<String, Boolean>> coverageCache = new ConcurrentHashMap<>();
-    // Cache for parsed HTML documents: Map<htmlFilePath, Map<targetMethod, Set<lineNumbers>>>
-    private static final Map<String, Map<String, Set<Integer>>> htmlLineCache = new ConcurrentHashMap<>();
-    // Cache for XML method coverage: Map<xmlFilePath, Map<methodSig, Set<coveredLineNumbers>>>
-    private static final Map<String, Map<String, Set<Integer>>> xmlCoverageCache = new ConcurrentHashMap<>();
-    // Cache to track if a class has multiple calls to same target: Map<className, Map<targetMethod, count>>
-    private static final Map<String, Map<String, Integer>> targetCallCountCache = new ConcurrentHashMap<>();
 
     /**
-     * Clears all caches.
+     * The caches of one {@link AnalysisSession}.
+     */
+    private static class Caches {
+        // Cache - Map<htmlFilePath, Map<thirdPartyMethod, isCovered>>
+        private final Map<String, Map<String, Boolean>> coverageCache = new ConcurrentHashMap<>();
+        // Cache for parsed HTML documents: Map<htmlFilePath, Map<targetMethod, Set<lineNumbers>>>
+        private final Map<String, Map<String, Set<Integer>>> htmlLineCache = new ConcurrentHashMap<>();
+        // Cache for parsed HTML reports: Map<htmlFilePath, HtmlLineIndex>
+        private final Map<String, HtmlLineIndex> htmlIndexCache = new ConcurrentHashMap<>();
+        // Cache for parsed XML reports: Map<xmlFilePath, CoverageIndex>
+        private final Map<String, CoverageIndex> xmlIndexCache = new ConcurrentHashMap<>();
+        // Coverage computed from jacoco.exec files, if any
+        private volatile CoverageIndex executionData;
+        // The XML reports of the report directories merged with the execution data: Map<reportDirs, CoverageIndex>
+        private final Map<List<File>, CoverageIndex> mergedIndexCache = new ConcurrentHashMap<>();
+        // Cache to track if a class has multiple calls to same target: Map<className, Map<targetMethod, count>>
+        private final Map<String, Map<String, Integer>> targetCallCountCache = new ConcurrentHashMap<>();
+    }
+
+    private static Caches caches() {
+        return AnalysisSession.current().state(Caches.class, Caches::new);
+    }
+
+    /**
+     * Clears all caches of the current session.
      */
     public static void clearCache() {
-        coverageCache.clear();
-        htmlLineCache.clear();
-        xmlCoverageCache.clear();
-        targetCallCountCache.clear();
+        Caches caches = caches();
+        caches.coverageCache.clear();
+        caches.htmlLineCache.clear();
+        caches.htmlIndexCache.clear();
+        caches.xmlIndexCache.clear();
+        caches.executionData = null;
+        caches.mergedIndexCache.clear();
+        caches.targetCallCountCache.clear();
         log.debug("All coverage caches cleared");
     }
 
     /**
-     * Checks if a given method is covered by tests using JaCoCo reports.
+     * Uses the coverage computed from JaCoCo execution data in the current session. It is checked before the reports
+     * for the calls whose source lines are known.
+     */
+    public static void useExecutionData(CoverageIndex executionData) {
+        Caches caches = caches();
+        caches.executionData = executionData;
+        caches.mergedIndexCache.clear();
+    }
+
+    /**
+     * Reads the XML reports of the given report directories and merges them with the execution data of the current
+     * session, so the call sites are checked with one lookup however many reports there are. Otherwise, this is done
+     * on the first check.
+     */
+    public static void loadCoverage(List<File> jacocoHtmlDirs) throws IOException {
+        getMergedIndex(jacocoHtmlDirs);
+    }
+
+    /**
+     * Checks if a given method is covered by tests using the JaCoCo HTML reports (the HTML fallback).
      * Uses HTML to find line numbers where target is called, then uses XML to check
      * if those specific lines are covered in the given method.
      *
@@ -70,12 +105,8 @@ public class CoverageFilter {
             String[] packageAndClass = extractPackageAndClass(fullClassName);
             String packageName = packageAndClass[0];
             String outerMostClassName = packageAndClass[1];
-            // Use the full signature with parameters to handle method overloading
-            String thirdPartyMethod = targetClassName + "."
-                    + target.getName()
-                    + "(" + target.getParameterTypes().stream()
-                    .map(Type::toString)
-                    .collect(Collectors.joining(", ")) + ")";
+            String thirdPartyMethod = getThirdPartyMethodSignature(target);
+            String callerSignature = getCallerSignature(method);
             // Check if this class has multiple calls to the same target OR if the method has overloads
             // We need precise checking for overloads because HTML doesn't show parameter types
             boolean needsPreciseCheck = hasMultipleTargetCalls(fullClassName, thirdPartyMethod)
@@ -97,7 +128,7 @@ public class CoverageFilter {
                         .collect(Collectors.joining(", ")) + ")";
                 String cacheKey = htmlFilePath + "|" + methodSignature + "|" + thirdPartyMethod;
                 // Check cache first
-                Map<String, Boolean> fileCache = coverageCache.get(htmlFilePath);
+                Map<String, Boolean> fileCache = caches().coverageCache.get(htmlFilePath);
                 if (fileCache != null && fileCache.containsKey(cacheKey)) {
                     log.debug("Cache hit for {} in method {}", thirdPartyMethod, method.getName());
                     return fileCache.get(cacheKey);
@@ -121,23 +152,15 @@ public class CoverageFilter {
                         isCovered = isMethodCoveredInClass(htmlFile, method, targetClassName, thirdPartyMethod);
                     }
                 }
-                coverageCache.computeIfAbsent(htmlFilePath, k -> new ConcurrentHashMap<>())
+                caches().coverageCache.computeIfAbsent(htmlFilePath, k -> new ConcurrentHashMap<>())
                         .put(cacheKey, isCovered);
                 if (isCovered) {
-                    String callerSignature = filterName(method.getDeclClassType().getFullyQualifiedName())
-                            + "." + method.getName() +
-                            "(" + method.getParameterTypes().stream().map(Type::toString)
-                            .collect(Collectors.joining(", ")) + ")";
                     if (enableAnalysisLogs) {
                         CoverageLogger.logCoverage(callerSignature, thirdPartyMethod, true);
                     }
                     return true;
                 }
             }
-            String callerSignature = filterName(method.getDeclClassType().getFullyQualifiedName()) +
-                    "." + method.getName() +
-                    "(" + method.getParameterTypes().stream().map(Type::toString)
-                    .collect(Collectors.joining(", ")) + ")";
             if (enableAnalysisLogs) {
                 CoverageLogger.logCoverage(callerSignature, thirdPartyMethod, false);
             }
@@ -148,12 +171,91 @@ public class CoverageFilter {
         }
     }
 
+    /**
+     * Checks if the calls from the given method to the target are covered by tests: the call is covered if any of its
+     * source lines has covered instructions in the merged coverage of the XML reports and the execution data.
+     * Calls whose lines are not known, or whose class is in no report, are not covered, unless the HTML fallback is
+     * enabled, which checks them with {@link #isAlreadyCoveredByTests(MethodSignature, MethodSignature, List, boolean)}.
+     *
+     * @param method         The method signature to check for coverage
+     * @param target         The target third-party method signature
+     * @param callSiteLines  The source lines where the method calls the target (may be empty)
+     * @param jacocoHtmlDirs List of JaCoCo report directories (site/jacoco roots)
+     * @param htmlFallback   Whether to check the calls without line coverage in the HTML reports
+     * @return true if the method is covered by tests, false otherwise
+     */
+    public static boolean isAlreadyCoveredByTests(MethodSignature method, MethodSignature target, int[] callSiteLines,
+                                                  List<File> jacocoHtmlDirs, boolean htmlFallback,
+                                                  boolean enableAnalysisLogs) {
+        String thirdPartyMethod = getThirdPartyMethodSignature(target);
+        Boolean callSiteCovered;
+        try {
+            callSiteCovered = callSiteLines.length == 0 ? null
+                    : isCallSiteCovered(method, callSiteLines, jacocoHtmlDirs);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error checking coverage for method: {}", method.getName(), e);
+            return false;
+        }
+        if (callSiteCovered == null) {
+            if (htmlFallback) {
+                return isAlreadyCoveredByTests(method, target, jacocoHtmlDirs, enableAnalysisLogs);
+            }
+            log.debug("No line coverage for the call of {} in {}, treated as not covered", thirdPartyMethod,
+                    method);
+            callSiteCovered = false;
+        } else {
+            log.debug("Target {} called on lines {} is {}covered", thirdPartyMethod, Arrays.toString(callSiteLines),
+                    callSiteCovered ? "" : "not ");
+        }
+        if (enableAnalysisLogs) {
+            CoverageLogger.logCoverage(getCallerSignature(method), thirdPartyMethod, callSiteCovered);
+        }
+        return callSiteCovered;
+    }
+
+    /**
+     * Returns the filtered signature of the third-party method with its parameters, so overloads are distinguished.
+     */
+    private static String getThirdPartyMethodSignature(MethodSignature target) {
+        return filterName(target.getDeclClassType().getFullyQualifiedName()) + "."
+                + target.getName()
+                + "(" + target.getParameterTypes().stream()
+                .map(Type::toString)
+                .collect(Collectors.joining(", ")) + ")";
+    }
+
+    private static String getCallerSignature(MethodSignature method) {
+        return filterName(method.getDeclClassType().getFullyQualifiedName()) + "." + method.getName()
+                + "(" + method.getParameterTypes().stream().map(Type::toString)
+                .collect(Collectors.joining(", ")) + ")";
+    }
+
+    /**
+     * Looks up the source lines of the calls in the merged coverage of the execution data and the XML reports.
+     * Returns null if none of them has the caller class.
+     */
+    private static Boolean isCallSiteCovered(MethodSignature method, int[] callSiteLines, List<File> jacocoHtmlDirs)
+            throws IOException {
+        // The XML report names classes like the bytecode does, e.g. "com/example/Outer$Inner"
+        String xmlClassName = method.getDeclClassType().getFullyQualifiedName().replace('.', '/');
+        CoverageIndex coverage = getMergedIndex(jacocoHtmlDirs);
+        if (!coverage.containsClass(xmlClassName)) {
+            return null;
+        }
+        for (int line : callSiteLines) {
+            if (coverage.isLineCovered(xmlClassName, line)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Check if a class has multiple calls to the same target method.
      * This helps determine if we need precise XML checking.
      */
     private static boolean hasMultipleTargetCalls(String fullClassName, String thirdPartyMethod) {
-        Map<String, Integer> classTargets = targetCallCountCache.get(fullClassName);
+        Map<String, Integer> classTargets = caches().targetCallCountCache.get(fullClassName);
         if (classTargets != null) {
             Integer count = classTargets.get(thirdPartyMethod);
             return count != null && count > 1;
@@ -169,8 +271,16 @@ public class CoverageFilter {
      * NOTE: thirdPartyMethod should include parameters to properly handle method overloading.
      */
     public static void registerTargetCall(String fullClassName, String thirdPartyMethod) {
-        targetCallCountCache.computeIfAbsent(filterName(fullClassName), k -> new ConcurrentHashMap<>())
-                .merge(thirdPartyMethod, 1, Integer::sum);
+        registerTargetCalls(fullClassName, thirdPartyMethod, 1);
+    }
+
+    /**
+     * Register that a class calls a specific target method the given number of times.
+     * Used when the call counts were collected beforehand (e.g., loaded from the call graph cache).
+     */
+    public static void registerTargetCalls(String fullClassName, String thirdPartyMethod, int count) {
+        caches().targetCallCountCache.computeIfAbsent(filterName(fullClassName), k -> new ConcurrentHashMap<>())
+                .merge(thirdPartyMethod, count, Integer::sum);
     }
 
     /**
@@ -178,7 +288,7 @@ public class CoverageFilter {
      * This helps determine if we need precise checking even for single calls.
      */
     private static boolean methodHasOverloads(String fullClassName, String thirdPartyMethodWithParams) {
-        Map<String, Integer> classTargets = targetCallCountCache.get(fullClassName);
+        Map<String, Integer> classTargets = caches().targetCallCountCache.get(fullClassName);
         if (classTargets == null || classTargets.isEmpty()) {
             return false;
         }
@@ -276,11 +386,9 @@ public class CoverageFilter {
      */
     private static boolean callerExtendsTarget(File htmlFile, String shortCallerClassName, String shortTargetClassName) {
         try {
-            Document doc = Jsoup.parse(htmlFile);
             // Look for class declaration with extends keyword
-            Element pre = doc.selectFirst("pre");
-            if (pre != null) {
-                String source = pre.wholeText();
+            String source = getHtmlIndex(htmlFile).sourceText();
+            if (source != null) {
                 if (source.contains("class ") && source.contains("extends ") && source.contains(shortTargetClassName)
                         && source.contains(shortCallerClassName)) {
                     return true;
@@ -305,12 +413,12 @@ public class CoverageFilter {
                 + "(" + target.getParameterTypes().stream()
                 .map(sootup.core.types.Type::toString)
                 .collect(java.util.stream.Collectors.joining(", ")) + ")";
-        Map<String, Set<Integer>> fileCache = htmlLineCache.get(htmlFilePath);
+        Map<String, Set<Integer>> fileCache = caches().htmlLineCache.get(htmlFilePath);
         if (fileCache != null && fileCache.containsKey(targetKey)) {
             return fileCache.get(targetKey);
         }
         Set<Integer> lineNumbers = new HashSet<>();
-        Document doc = Jsoup.parse(htmlFile);
+        HtmlLineIndex htmlIndex = getHtmlIndex(htmlFile);
         String targetClassName = filterName(target.getDeclClassType().getFullyQualifiedName());
         String shortClassName = targetClassName.substring(targetClassName.lastIndexOf('.') + 1);
         String methodName = target.getName();
@@ -319,10 +427,8 @@ public class CoverageFilter {
         // Check if this is a child-to-parent constructor call case
         boolean isChildConstructor = "<init>".equals(methodName) && callerExtendsTarget(htmlFile, callerSimpleClassName,
                 shortClassName);
-        Elements spans = doc.select("span[id^=L]");
-        for (Element span : spans) {
-            String lineId = span.attr("id");
-            String codeLine = span.text();
+        for (HtmlLineIndex.Line line : htmlIndex.lines()) {
+            String codeLine = line.text();
             boolean containsTarget = false;
             if ("<init>".equals(methodName)) {
                 if (isChildConstructor) {
@@ -349,145 +455,96 @@ public class CoverageFilter {
                 }
             }
             if (containsTarget) {
-                // Extract line number from id. ID is in the format "L123". We have to parse it to get 123.
-                try {
-                    int lineNum = Integer.parseInt(lineId.substring(1));
-                    lineNumbers.add(lineNum);
-                } catch (NumberFormatException e) {
-                    log.warn("Could not parse line number from id: {}", lineId);
-                }
+                lineNumbers.add(line.number());
             }
         }
-        htmlLineCache.computeIfAbsent(htmlFilePath, k -> new ConcurrentHashMap<>())
+        caches().htmlLineCache.computeIfAbsent(htmlFilePath, k -> new ConcurrentHashMap<>())
                 .put(targetKey, lineNumbers);
         return lineNumbers;
     }
 
     /**
-     * Parses JaCoCo XML report to extract covered line numbers for a specific method.
+     * Looks up the covered line numbers of a specific method in the JaCoCo XML report.
      * Only checks the specified class, does not recurse into superclasses.
      */
     private static Set<Integer> getCoveredLinesForMethod(File xmlFile, String fullClassName,
                                                          String methodName, String methodDesc) throws Exception {
-        String cacheKey = xmlFile.getAbsolutePath();
         String methodKey = fullClassName + "." + methodName + methodDesc;
-        Map<String, Set<Integer>> fileCache = xmlCoverageCache.get(cacheKey);
-        if (fileCache != null && fileCache.containsKey(methodKey)) {
-            return fileCache.get(methodKey);
+        Set<Integer> coveredLines = getXmlIndex(xmlFile)
+                .coveredLinesOfMethod(fullClassName.replace('.', '/'), methodName, methodDesc);
+        if (coveredLines == null) {
+            log.warn("Could not find start line for method {}", methodKey);
+            return Set.of();
         }
-        // We remove DTD validation to avoid errors.
-        Set<Integer> coveredLines = new HashSet<>();
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setValidating(false);
-        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-        factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-        factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        org.w3c.dom.Document doc = builder.parse(xmlFile);
-        // Find the package that contains our class
-        // This is most definitely bad code. If possible we should refactor it later.
-        String xmlClassName = fullClassName.replace('.', '/');
-        NodeList packages = doc.getElementsByTagName("package");
-        for (int i = 0; i < packages.getLength(); i++) {
-            org.w3c.dom.Element pkg = (org.w3c.dom.Element) packages.item(i);
-            NodeList classes = pkg.getElementsByTagName("class");
-            org.w3c.dom.Element targetClass = null;
-            String sourceFileName = null;
-            for (int j = 0; j < classes.getLength(); j++) {
-                org.w3c.dom.Element clazz = (org.w3c.dom.Element) classes.item(j);
-                String className = clazz.getAttribute("name");
-                if (className.equals(xmlClassName)) {
-                    targetClass = clazz;
-                    sourceFileName = clazz.getAttribute("sourcefilename");
-                    break;
-                }
-            }
-            if (targetClass == null) {
-                continue;
-            }
-            Integer methodStartLine = null;
-            Integer methodEndLine = null;
-            NodeList methods = targetClass.getElementsByTagName("method");
-            List<Integer> allMethodStarts = new ArrayList<>();
-            for (int k = 0; k < methods.getLength(); k++) {
-                org.w3c.dom.Element methodElem = (org.w3c.dom.Element) methods.item(k);
-                String lineAttr = methodElem.getAttribute("line");
-                if (!lineAttr.isEmpty()) {
-                    allMethodStarts.add(Integer.parseInt(lineAttr));
-                }
-            }
-            // Sort to find method boundaries
-            Collections.sort(allMethodStarts);
-            for (int k = 0; k < methods.getLength(); k++) {
-                org.w3c.dom.Element methodElem = (org.w3c.dom.Element) methods.item(k);
-                String xmlMethodName = methodElem.getAttribute("name");
-                String xmlMethodDesc = methodElem.getAttribute("desc");
-                if (xmlMethodName.equals(methodName) && xmlMethodDesc.equals(methodDesc)) {
-                    String lineAttr = methodElem.getAttribute("line");
-                    if (!lineAttr.isEmpty()) {
-                        methodStartLine = Integer.parseInt(lineAttr);
-                        // Find the next method start line that is greater than current start line
-                        // This handles cases where multiple methods (e.g., overloaded constructors) 
-                        // share the same line number in the XML
-                        for (int nextLine : allMethodStarts) {
-                            if (nextLine > methodStartLine) {
-                                methodEndLine = nextLine - 1;
-                                break;
-                            }
-                        }
-                    }
-                    break;
+        log.debug("Found {} covered lines for method {} in class {}",
+                coveredLines.size(), methodName, fullClassName);
+        return coveredLines;
+    }
+
+    /**
+     * Returns the lines of the HTML report. Each report is read once per session, however many targets and checks
+     * look at it.
+     */
+    private static HtmlLineIndex getHtmlIndex(File htmlFile) throws IOException {
+        try {
+            return caches().htmlIndexCache.computeIfAbsent(htmlFile.getAbsolutePath(), path -> {
+                try {
+                    return HtmlLineIndex.fromHtml(htmlFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-            }
-            if (methodStartLine == null) {
-                log.warn("Could not find start line for method {}", methodKey);
-                continue;
-            }
-            // Now we find the matching sourcefile element. Source element is a sibling to class elements.
-            NodeList sourcefiles = pkg.getElementsByTagName("sourcefile");
-            org.w3c.dom.Element targetSourceFile = null;
-            for (int j = 0; j < sourcefiles.getLength(); j++) {
-                org.w3c.dom.Element sourcefile = (org.w3c.dom.Element) sourcefiles.item(j);
-                String sfName = sourcefile.getAttribute("name");
-
-                if (sfName.equals(sourceFileName)) {
-                    targetSourceFile = sourcefile;
-                    break;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns the execution data merged with the XML reports of the given directories. The merged index is built
+     * once per session.
+     */
+    private static CoverageIndex getMergedIndex(List<File> jacocoHtmlDirs) throws IOException {
+        Caches caches = caches();
+        try {
+            return caches.mergedIndexCache.computeIfAbsent(jacocoHtmlDirs, dirs -> {
+                List<CoverageIndex> indexes = new ArrayList<>();
+                if (caches.executionData != null) {
+                    indexes.add(caches.executionData);
                 }
-            }
-            if (targetSourceFile == null) {
-                log.warn("Could not find sourcefile {} for class {}", sourceFileName, fullClassName);
-                continue;
-            }
-            // Parse the sourcefile for covered lines within method boundaries
-            NodeList lines = targetSourceFile.getElementsByTagName("line");
-            for (int l = 0; l < lines.getLength(); l++) {
-                org.w3c.dom.Element line = (org.w3c.dom.Element) lines.item(l);
-                int lineNum = Integer.parseInt(line.getAttribute("nr"));
-                int coveredInstructions = Integer.parseInt(line.getAttribute("ci"));
-                // Check if line is covered and within method bounds
-                if (coveredInstructions > 0) {
-                    if (methodEndLine != null) {
-                        if (lineNum >= methodStartLine && lineNum <= methodEndLine) {
-                            coveredLines.add(lineNum);
-                        }
-                    } else {
-                        // No end line found, include all lines after start
-                        // This happens for the last method in the class
-                        if (lineNum >= methodStartLine) {
-                            coveredLines.add(lineNum);
+                for (File dir : dirs) {
+                    File xmlFile = findXmlReport(dir);
+                    if (xmlFile != null) {
+                        try {
+                            indexes.add(getXmlIndex(xmlFile));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
                         }
                     }
                 }
-            }
-            break;
+                log.debug("Merging the coverage of {} reports", indexes.size());
+                return CoverageIndex.merge(indexes);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        xmlCoverageCache.computeIfAbsent(cacheKey, k -> new ConcurrentHashMap<>())
-                .put(methodKey, coveredLines);
+    }
 
-        log.debug("Found {} covered lines for method {} in class {}",
-                coveredLines.size(), methodName, fullClassName);
-        return coveredLines;
+    /**
+     * Returns the index of the XML report. Each report is parsed once per session.
+     */
+    private static CoverageIndex getXmlIndex(File xmlFile) throws IOException {
+        try {
+            return caches().xmlIndexCache.computeIfAbsent(xmlFile.getAbsolutePath(), path -> {
+                try {
+                    log.debug("Indexing JaCoCo XML report {}", path);
+                    return CoverageIndex.fromXml(xmlFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     /**
@@ -626,13 +683,10 @@ public class CoverageFilter {
         // Check if this is a child-to-parent constructor call case
         boolean isChildConstructor = "<init>".equals(methodName) && callerExtendsTarget(htmlFile, callerSimpleClassName,
                 shortClassName);
-        Document doc = Jsoup.parse(htmlFile);
-        Elements spans = doc.select("span[id^=L]");
-        for (Element span : spans) {
-            String codeLine = span.text();
-            String clazz = span.className();
+        for (HtmlLineIndex.Line line : getHtmlIndex(htmlFile).lines()) {
+            String codeLine = line.text();
             // Only process covered lines. fc means fully covered.
-            if (clazz.contains("fc")) {
+            if (line.isFullyCovered()) {
                 if ("<init>".equals(methodName)) {
                     if (isChildConstructor) {
                         // Here, our goal is to check if the caller constructor is covered. If it is covered, the target
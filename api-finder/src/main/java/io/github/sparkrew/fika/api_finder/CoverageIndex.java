@@ -0,0 +1,295 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * The line coverage of a JaCoCo XML report, read once with a streaming parser, or computed from JaCoCo execution data
+ * ({@code jacoco.exec}) and the class files it was recorded for.
+ * For every class it keeps the first line of each method (by name and descriptor) and the lines of its source file
+ * that have covered instructions. A method spans from its first line to the line before the next method of the class
+ * that starts on a later line, or to the end of the source file for the last method.
+ * Classes are keyed by their name in the report, e.g. "com/example/Foo". The indexes of several reports can be merged
+ * into one, so a lookup does not depend on the number of reports.
+ */
+public class CoverageIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CoverageIndex.class);
+    private final Map<String, ClassCoverage> classes;
+
+    private CoverageIndex(Map<String, ClassCoverage> classes) {
+        this.classes = classes;
+    }
+
+    private static class ClassCoverage {
+        private final String sourceFileName;
+        // First line by method name + descriptor, e.g. "run()V"
+        private final Map<String, Integer> methodStartLines = new HashMap<>();
+        // Distinct first lines of all methods, sorted
+        private int[] sortedStartLines;
+        private BitSet coveredLines;
+
+        private ClassCoverage(String sourceFileName) {
+            this.sourceFileName = sourceFileName;
+        }
+    }
+
+    /**
+     * Reads the report. The DTD that JaCoCo references is not loaded.
+     */
+    public static CoverageIndex fromXml(File xmlFile) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        Map<String, ClassCoverage> classes = new HashMap<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(xmlFile.toPath()))) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                // The classes of a package refer to the source files of the same package, which come after them
+                List<ClassCoverage> packageClasses = new ArrayList<>();
+                Map<String, BitSet> packageSourceFiles = new HashMap<>();
+                ClassCoverage currentClass = null;
+                BitSet currentSourceFile = null;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        switch (reader.getLocalName()) {
+                            case "class" -> {
+                                currentClass = new ClassCoverage(reader.getAttributeValue(null, "sourcefilename"));
+                                packageClasses.add(currentClass);
+                                classes.putIfAbsent(reader.getAttributeValue(null, "name"), currentClass);
+                            }
+                            case "method" -> {
+                                String line = reader.getAttributeValue(null, "line");
+                                if (currentClass != null && line != null && !line.isEmpty()) {
+                                    currentClass.methodStartLines.putIfAbsent(reader.getAttributeValue(null, "name")
+                                            + reader.getAttributeValue(null, "desc"), Integer.parseInt(line));
+                                }
+                            }
+                            case "sourcefile" -> currentSourceFile = packageSourceFiles.computeIfAbsent(
+                                    reader.getAttributeValue(null, "name"), k -> new BitSet());
+                            case "line" -> {
+                                if (currentSourceFile != null
+                                        && Integer.parseInt(reader.getAttributeValue(null, "ci")) > 0) {
+                                    currentSourceFile.set(Integer.parseInt(reader.getAttributeValue(null, "nr")));
+                                }
+                            }
+                            default -> {
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        switch (reader.getLocalName()) {
+                            case "class" -> currentClass = null;
+                            case "sourcefile" -> currentSourceFile = null;
+                            case "package" -> {
+                                link(packageClasses, packageSourceFiles);
+                                packageClasses.clear();
+                                packageSourceFiles.clear();
+                            }
+                            default -> {
+                            }
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Could not parse the JaCoCo XML report " + xmlFile, e);
+        }
+        return new CoverageIndex(classes);
+    }
+
+    /**
+     * Computes the coverage of the project classes from the execution data, the same way the JaCoCo report does.
+     * The class files have to be the ones the execution data was recorded for.
+     *
+     * @param execFiles   The execution data files. The data of all files is merged.
+     * @param pathToJar   The jar or classes directory with the project classes.
+     * @param packageName The package name of the project. Only the classes of this package are analyzed.
+     */
+    public static CoverageIndex fromExecutionData(List<Path> execFiles, String pathToJar, String packageName)
+            throws IOException {
+        ExecFileLoader loader = new ExecFileLoader();
+        for (Path execFile : execFiles) {
+            loader.load(execFile.toFile());
+        }
+        CoverageBuilder coverageBuilder = new CoverageBuilder();
+        Analyzer analyzer = new Analyzer(loader.getExecutionDataStore(), coverageBuilder);
+        String packagePath = packageName.replace('.', '/');
+        Path input = Path.of(pathToJar);
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> files = Files.walk(input)) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    String name = input.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (isProjectClassFile(name, packagePath)) {
+                        try (InputStream in = Files.newInputStream(file)) {
+                            analyzer.analyzeClass(in, name);
+                        }
+                    }
+                }
+            }
+        } else {
+            try (JarFile jarFile = new JarFile(pathToJar)) {
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (isProjectClassFile(entry.getName(), packagePath)) {
+                        try (InputStream in = jarFile.getInputStream(entry)) {
+                            analyzer.analyzeClass(in, entry.getName());
+                        }
+                    }
+                }
+            }
+        }
+        // As in the XML report, the covered lines are those of the whole source file, which may hold several classes
+        Map<String, ClassCoverage> classes = new HashMap<>();
+        Map<String, List<ClassCoverage>> classesByPackage = new HashMap<>();
+        Map<String, Map<String, BitSet>> sourceFilesByPackage = new HashMap<>();
+        int mismatched = 0;
+        for (IClassCoverage classCoverage : coverageBuilder.getClasses()) {
+            if (classCoverage.isNoMatch()) {
+                mismatched++;
+            }
+            ClassCoverage clazz = new ClassCoverage(classCoverage.getSourceFileName());
+            for (IMethodCoverage method : classCoverage.getMethods()) {
+                if (method.getFirstLine() != ISourceNode.UNKNOWN_LINE) {
+                    clazz.methodStartLines.putIfAbsent(method.getName() + method.getDesc(), method.getFirstLine());
+                }
+            }
+            BitSet coveredLines = sourceFilesByPackage
+                    .computeIfAbsent(classCoverage.getPackageName(), k -> new HashMap<>())
+                    .computeIfAbsent(classCoverage.getSourceFileName(), k -> new BitSet());
+            for (int line = classCoverage.getFirstLine(); line != ISourceNode.UNKNOWN_LINE
+                    && line <= classCoverage.getLastLine(); line++) {
+                if (classCoverage.getLine(line).getInstructionCounter().getCoveredCount() > 0) {
+                    coveredLines.set(line);
+                }
+            }
+            classesByPackage.computeIfAbsent(classCoverage.getPackageName(), k -> new ArrayList<>()).add(clazz);
+            classes.put(classCoverage.getName(), clazz);
+        }
+        classesByPackage.forEach((packageInternalName, packageClasses) ->
+                link(packageClasses, sourceFilesByPackage.get(packageInternalName)));
+        if (mismatched > 0) {
+            log.warn("The execution data of {} classes does not match their class files", mismatched);
+        }
+        log.info("Computed the coverage of {} classes from {} execution data files", classes.size(),
+                execFiles.size());
+        return new CoverageIndex(classes);
+    }
+
+    /**
+     * Merges the coverage of several reports, e.g. of the unit and the integration tests or of several modules. A line
+     * is covered if it is covered in any of them, and a method starts where the first report that has it says.
+     */
+    public static CoverageIndex merge(List<CoverageIndex> indexes) {
+        if (indexes.size() == 1) {
+            return indexes.get(0);
+        }
+        Map<String, ClassCoverage> classes = new HashMap<>();
+        // As in a single report, the classes of a source file share its covered lines
+        Map<String, BitSet> sourceFiles = new HashMap<>();
+        for (CoverageIndex index : indexes) {
+            index.classes.forEach((className, clazz) -> {
+                if (clazz.coveredLines == null) {
+                    return;
+                }
+                ClassCoverage merged = classes.computeIfAbsent(className, k -> new ClassCoverage(clazz.sourceFileName));
+                if (merged.coveredLines == null) {
+                    merged.coveredLines = merged.sourceFileName == null ? new BitSet()
+                            : sourceFiles.computeIfAbsent(className.substring(0, className.lastIndexOf('/') + 1)
+                            + merged.sourceFileName, k -> new BitSet());
+                }
+                merged.coveredLines.or(clazz.coveredLines);
+                clazz.methodStartLines.forEach(merged.methodStartLines::putIfAbsent);
+            });
+        }
+        classes.values().forEach(CoverageIndex::sortStartLines);
+        return new CoverageIndex(classes);
+    }
+
+    private static boolean isProjectClassFile(String name, String packagePath) {
+        return name.endsWith(".class") && name.startsWith(packagePath) && !name.endsWith("module-info.class");
+    }
+
+    /**
+     * Gives the classes of a package the covered lines of their source file and their sorted method start lines.
+     */
+    private static void link(List<ClassCoverage> packageClasses, Map<String, BitSet> packageSourceFiles) {
+        for (ClassCoverage clazz : packageClasses) {
+            clazz.coveredLines = packageSourceFiles.getOrDefault(clazz.sourceFileName, new BitSet());
+            sortStartLines(clazz);
+        }
+    }
+
+    private static void sortStartLines(ClassCoverage clazz) {
+        clazz.sortedStartLines = clazz.methodStartLines.values().stream()
+                .mapToInt(Integer::intValue).distinct().sorted().toArray();
+    }
+
+    /**
+     * Whether the report has the given class, e.g. "com/example/Foo$Inner".
+     */
+    public boolean containsClass(String className) {
+        ClassCoverage clazz = classes.get(className);
+        return clazz != null && clazz.coveredLines != null;
+    }
+
+    /**
+     * Whether the given line of the source file of the class has covered instructions.
+     */
+    public boolean isLineCovered(String className, int line) {
+        ClassCoverage clazz = classes.get(className);
+        return clazz != null && clazz.coveredLines != null && line >= 0 && clazz.coveredLines.get(line);
+    }
+
+    /**
+     * Returns the covered lines of the given method, or null if the report does not have the method or its lines.
+     *
+     * @param className  The class name in the report format, e.g. "com/example/Foo".
+     * @param methodName The method name, e.g. "run" or "&lt;init&gt;".
+     * @param methodDesc The JVM method descriptor, e.g. "(Ljava/lang/String;)V".
+     */
+    public Set<Integer> coveredLinesOfMethod(String className, String methodName, String methodDesc) {
+        ClassCoverage clazz = classes.get(className);
+        if (clazz == null || clazz.coveredLines == null) {
+            return null;
+        }
+        Integer startLine = clazz.methodStartLines.get(methodName + methodDesc);
+        if (startLine == null) {
+            return null;
+        }
+        // The next method start that is greater than the start line. Overloaded constructors, for example, can
+        // share their first line.
+        int next = Arrays.binarySearch(clazz.sortedStartLines, startLine) + 1;
+        int endLine = next < clazz.sortedStartLines.length ? clazz.sortedStartLines[next] - 1 : Integer.MAX_VALUE;
+        Set<Integer> coveredLines = new HashSet<>();
+        for (int line = clazz.coveredLines.nextSetBit(startLine); line >= 0 && line <= endLine;
+             line = clazz.coveredLines.nextSetBit(line + 1)) {
+            coveredLines.add(line);
+        }
+        return coveredLines;
+    }
+}
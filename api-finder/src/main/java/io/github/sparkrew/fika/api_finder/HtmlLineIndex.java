@@ -0,0 +1,318 @@
+package io.github.sparkrew.fika.api_finder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The source lines of a JaCoCo HTML report ({@code Foo.java.html}), read in one pass without building a DOM.
+ * JaCoCo writes each executable line as {@code <span class="fc" id="L12">...</span>} inside a {@code <pre>} element.
+ * For every such line, the index keeps the line number, the coverage classes ("fc", "pc" or "nc", plus the branch
+ * classes such as "bpc") and the text of the line, with entities decoded and trimmed. As in the text view of an HTML
+ * element, whitespace is kept inside {@code <pre>} and collapsed elsewhere. It also keeps the whole text of the first
+ * {@code <pre>} element.
+ */
+public class HtmlLineIndex {
+
+    /**
+     * One executable line of the report.
+     *
+     * @param number   The source line number.
+     * @param coverage The class attribute of the line, e.g. "fc" or "pc bpc".
+     * @param text     The trimmed text of the line.
+     */
+    public record Line(int number, String coverage, String text) {
+
+        public boolean isFullyCovered() {
+            return coverage.contains("fc");
+        }
+    }
+
+    private final List<Line> lines;
+    private final String sourceText;
+
+    private HtmlLineIndex(List<Line> lines, String sourceText) {
+        this.lines = lines;
+        this.sourceText = sourceText;
+    }
+
+    /**
+     * The executable lines, in the order of the report.
+     */
+    public List<Line> lines() {
+        return lines;
+    }
+
+    /**
+     * The whole text of the first {@code <pre>} element, or null if the report has none.
+     */
+    public String sourceText() {
+        return sourceText;
+    }
+
+    public static HtmlLineIndex fromHtml(File htmlFile) throws IOException {
+        return parse(Files.readString(htmlFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    static HtmlLineIndex parse(String html) {
+        List<Line> lines = new ArrayList<>();
+        StringBuilder preText = null;
+        boolean inFirstPre = false;
+        int preDepth = 0;
+        // The line span that is being read, and the depth of spans inside it
+        String lineId = null;
+        String lineClass = null;
+        boolean linePreformatted = false;
+        int spanDepth = 0;
+        StringBuilder lineText = new StringBuilder();
+        int i = 0;
+        int length = html.length();
+        while (i < length) {
+            int tagStart = html.indexOf('<', i);
+            int textEnd = tagStart < 0 ? length : tagStart;
+            if (textEnd > i) {
+                String text = decodeEntities(html, i, textEnd);
+                if (inFirstPre) {
+                    preText.append(text);
+                }
+                if (lineId != null) {
+                    lineText.append(text);
+                }
+            }
+            if (tagStart < 0) {
+                break;
+            }
+            if (html.startsWith("<!--", tagStart)) {
+                int commentEnd = html.indexOf("-->", tagStart + 4);
+                i = commentEnd < 0 ? length : commentEnd + 3;
+                continue;
+            }
+            int tagEnd = findTagEnd(html, tagStart + 1);
+            if (tagEnd < 0) {
+                // An unterminated tag is text, as in the HTML text view
+                String text = html.substring(tagStart);
+                if (inFirstPre) {
+                    preText.append(text);
+                }
+                if (lineId != null) {
+                    lineText.append(text);
+                }
+                break;
+            }
+            String tag = html.substring(tagStart + 1, tagEnd);
+            i = tagEnd + 1;
+            boolean closing = tag.startsWith("/");
+            String name = tagName(tag, closing ? 1 : 0);
+            if ("pre".equals(name)) {
+                if (!closing) {
+                    preDepth++;
+                    if (preText == null) {
+                        preText = new StringBuilder();
+                        inFirstPre = true;
+                    }
+                } else {
+                    preDepth = Math.max(0, preDepth - 1);
+                    inFirstPre = false;
+                }
+            } else if ("span".equals(name)) {
+                if (closing) {
+                    if (lineId != null && --spanDepth == 0) {
+                        addLine(lines, lineId, lineClass, lineText, linePreformatted);
+                        lineId = null;
+                    }
+                } else if (lineId != null) {
+                    spanDepth++;
+                } else {
+                    String id = attribute(tag, "id");
+                    if (id != null && id.startsWith("L")) {
+                        lineId = id;
+                        String clazz = attribute(tag, "class");
+                        lineClass = clazz == null ? "" : clazz;
+                        linePreformatted = preDepth > 0;
+                        spanDepth = 1;
+                        lineText.setLength(0);
+                    }
+                }
+            }
+        }
+        if (lineId != null) {
+            addLine(lines, lineId, lineClass, lineText, linePreformatted);
+        }
+        return new HtmlLineIndex(Collections.unmodifiableList(lines), preText == null ? null : preText.toString());
+    }
+
+    private static void addLine(List<Line> lines, String lineId, String lineClass, StringBuilder lineText,
+                                boolean preformatted) {
+        try {
+            String text = preformatted ? lineText.toString().trim() : collapseWhitespace(lineText);
+            lines.add(new Line(Integer.parseInt(lineId.substring(1)), lineClass, text));
+        } catch (NumberFormatException e) {
+            // Not a line of the source, e.g. id="Legend"
+        }
+    }
+
+    /**
+     * Returns the index of the '>' that ends the tag, skipping quoted attribute values.
+     */
+    private static int findTagEnd(String html, int from) {
+        char quote = 0;
+        for (int i = from; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String tagName(String tag, int from) {
+        int end = from;
+        while (end < tag.length() && !Character.isWhitespace(tag.charAt(end)) && tag.charAt(end) != '/') {
+            end++;
+        }
+        return tag.substring(from, end).toLowerCase();
+    }
+
+    /**
+     * Returns the decoded value of the attribute, or null if the tag does not have it.
+     */
+    private static String attribute(String tag, String name) {
+        int i = tagName(tag, 0).length();
+        while (i < tag.length()) {
+            while (i < tag.length() && (Character.isWhitespace(tag.charAt(i)) || tag.charAt(i) == '/')) {
+                i++;
+            }
+            int nameStart = i;
+            while (i < tag.length() && tag.charAt(i) != '=' && !Character.isWhitespace(tag.charAt(i))
+                    && tag.charAt(i) != '/') {
+                i++;
+            }
+            String attributeName = tag.substring(nameStart, i);
+            while (i < tag.length() && Character.isWhitespace(tag.charAt(i))) {
+                i++;
+            }
+            String value = "";
+            if (i < tag.length() && tag.charAt(i) == '=') {
+                i++;
+                while (i < tag.length() && Character.isWhitespace(tag.charAt(i))) {
+                    i++;
+                }
+                int valueStart;
+                int valueEnd;
+                if (i < tag.length() && (tag.charAt(i) == '"' || tag.charAt(i) == '\'')) {
+                    int close = tag.indexOf(tag.charAt(i), i + 1);
+                    valueStart = i + 1;
+                    valueEnd = close < 0 ? tag.length() : close;
+                    i = valueEnd + 1;
+                } else {
+                    valueStart = i;
+                    while (i < tag.length() && !Character.isWhitespace(tag.charAt(i))) {
+                        i++;
+                    }
+                    valueEnd = i;
+                }
+                value = decodeEntities(tag, valueStart, valueEnd);
+            }
+            if (attributeName.equalsIgnoreCase(name)) {
+                return value;
+            }
+            if (attributeName.isEmpty()) {
+                i++;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decodes the character references that JaCoCo writes (and the numeric ones). Unknown references are kept.
+     */
+    static String decodeEntities(String html, int from, int to) {
+        int amp = html.indexOf('&', from);
+        if (amp < 0 || amp >= to) {
+            return html.substring(from, to);
+        }
+        StringBuilder decoded = new StringBuilder(to - from);
+        int i = from;
+        while (i < to) {
+            char c = html.charAt(i);
+            int semicolon = c == '&' ? html.indexOf(';', i) : -1;
+            if (semicolon > i + 1 && semicolon < to && semicolon - i <= 10) {
+                String reference = html.substring(i + 1, semicolon);
+                int codePoint = decodeReference(reference);
+                if (codePoint >= 0) {
+                    decoded.appendCodePoint(codePoint);
+                    i = semicolon + 1;
+                    continue;
+                }
+            }
+            decoded.append(c);
+            i++;
+        }
+        return decoded.toString();
+    }
+
+    private static int decodeReference(String reference) {
+        switch (reference) {
+            case "lt" -> {
+                return '<';
+            }
+            case "gt" -> {
+                return '>';
+            }
+            case "amp" -> {
+                return '&';
+            }
+            case "quot" -> {
+                return '"';
+            }
+            case "apos" -> {
+                return '\'';
+            }
+            case "nbsp" -> {
+                return '\u00a0';
+            }
+        }
+        if (reference.startsWith("#")) {
+            try {
+                int codePoint = reference.startsWith("#x") || reference.startsWith("#X")
+                        ? Integer.parseInt(reference.substring(2), 16)
+                        : Integer.parseInt(reference.substring(1));
+                return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces each run of whitespace with one space and trims the result, like the text of an HTML element.
+     */
+    private static String collapseWhitespace(CharSequence text) {
+        StringBuilder collapsed = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u00a0') {
+                pendingSpace = collapsed.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    collapsed.append(' ');
+                    pendingSpace = false;
+                }
+                collapsed.append(c);
+            }
+        }
+        return collapsed.toString();
+    }
+}
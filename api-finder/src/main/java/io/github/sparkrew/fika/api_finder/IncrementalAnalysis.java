@@ -0,0 +1,425 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sootup.core.model.SootClass;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.types.ClassType;
+import sootup.java.core.JavaIdentifierFactory;
+import sootup.java.core.views.JavaView;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * State and helpers for the incremental mode.
+ * After every run, the state file keeps a hash of the bytecode of every class in the jar, a hash of the shape (super
+ * types, methods and modifiers) of every project class, and the call graph analysis. The next run on the same
+ * project hashes the classes again and only re-analyzes the project classes whose bytecode changed:
+ * <ul>
+ *     <li>the calls from the methods of the changed classes are resolved again and patched into the old call
+ *     graph,</li>
+ *     <li>the paths are recomputed for the direct callers that are reachable from a changed method (in the old or
+ *     the new graph), as every path that can change goes through a changed method,</li>
+ *     <li>the other records of the previous report are kept as they are.</li>
+ * </ul>
+ * A change in the shape of a class can change where unchanged call sites dispatch to, so it leads to a full run, the
+ * same as added or removed classes and changed dependency classes.
+ * The state file is named after a hash of everything but the jar content (the jar path, the report path, the package
+ * map, the coverage reports, the options, ...), so a run with other inputs never reuses it.
+ */
+public class IncrementalAnalysis {
+
+    private static final Logger log = LoggerFactory.getLogger(IncrementalAnalysis.class);
+    private static final int MAGIC = 0x46494b49; // "FIKI"
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_EXTENSION = ".state";
+
+    private final Path stateFile;
+
+    private IncrementalAnalysis(Path stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * Creates the incremental state for the given analysis inputs. The jar content is not part of the key, as the
+     * state is meant to be compared with a changed jar. The dependency jars are, so changed dependencies lead to a
+     * full run.
+     */
+    public static IncrementalAnalysis forInputs(Path cacheDir, String pathToJar, List<Path> dependencyPaths,
+                                                String reportPath, String packageName,
+                                                Path packageMapPath, String sourceRootPath,
+                                                List<File> jacocoHtmlDirs, Set<String> ignoredPrefixes,
+                                                CallGraphType callGraphType, boolean applicationOnly)
+            throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, "version:" + FORMAT_VERSION);
+        update(digest, "jar:" + Path.of(pathToJar).toAbsolutePath().normalize());
+        for (Path dependency : dependencyPaths) {
+            update(digest, "dependency:" + CallGraphCache.fingerprint(dependency));
+        }
+        update(digest, "report:" + Path.of(reportPath).toAbsolutePath().normalize());
+        update(digest, "package:" + packageName);
+        update(digest, "sources:" + sourceRootPath);
+        update(digest, "ignored:" + String.join(",", new TreeSet<>(ignoredPrefixes)));
+        update(digest, "callGraph:" + callGraphType + ":" + applicationOnly);
+        if (packageMapPath != null && Files.isRegularFile(packageMapPath)) {
+            digest.update(Files.readAllBytes(packageMapPath));
+        }
+        // Covered pairs are not part of the previous report, so other coverage reports need a full run. The reports
+        // can be large, so they are fingerprinted by name, size and modification time.
+        for (File coverageLocation : jacocoHtmlDirs) {
+            if (!coverageLocation.exists()) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(coverageLocation.toPath())) {
+                for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                    update(digest, "coverage:" + CallGraphCache.fingerprint(file));
+                }
+            }
+        }
+        Files.createDirectories(cacheDir);
+        return new IncrementalAnalysis(cacheDir.resolve(
+                "incremental-" + HexFormat.of().formatHex(digest.digest()) + FILE_EXTENSION));
+    }
+
+    public Path getStateFile() {
+        return stateFile;
+    }
+
+    /**
+     * Loads the state of the previous run, or returns null if there is none (or it cannot be read).
+     */
+    public State load() {
+        if (!Files.isRegularFile(stateFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not an incremental state file of this version");
+            }
+            Map<String, Long> classHashes = readHashes(in);
+            Map<String, Long> classShapes = readHashes(in);
+            CallGraphCache.CallGraphData callGraphData = CallGraphCache.read(in);
+            return new State(classHashes, classShapes, callGraphData);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read incremental state {}, running a full analysis", stateFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the state for the next run. Like the call graph cache, the file is written next to the target and then
+     * moved into place.
+     */
+    public void store(State state) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(stateFile.getParent(), "incremental", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeHashes(out, state.classHashes());
+                writeHashes(out, state.classShapes());
+                CallGraphCache.write(out, state.callGraphData());
+            }
+            Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Stored incremental state in {}", stateFile);
+        } catch (IOException e) {
+            log.warn("Could not write incremental state {}", stateFile, e);
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // Nothing else to clean up
+                }
+            }
+        }
+    }
+
+    /**
+     * Hashes the bytecode of every class in the jar or classes directory. Returns the hashes by fully qualified class
+     * name.
+     */
+    public static Map<String, Long> hashClasses(String pathToJar) throws IOException {
+        Map<String, Long> hashes = new HashMap<>();
+        MessageDigest digest = newDigest();
+        Path input = Path.of(pathToJar);
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> files = Files.walk(input)) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    String name = input.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (!isAnalyzedClassFile(name)) {
+                        continue;
+                    }
+                    digest.update(Files.readAllBytes(file));
+                    hashes.put(toClassName(name), toLong(digest.digest()));
+                }
+            }
+            return hashes;
+        }
+        try (JarFile jarFile = new JarFile(pathToJar)) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!isAnalyzedClassFile(name)) {
+                    continue;
+                }
+                try (InputStream in = jarFile.getInputStream(entry)) {
+                    digest.update(in.readAllBytes());
+                }
+                hashes.put(toClassName(name), toLong(digest.digest()));
+            }
+        }
+        return hashes;
+    }
+
+    private static boolean isAnalyzedClassFile(String name) {
+        // Multi-release variants and module descriptors are not analyzed
+        return name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("module-info.class");
+    }
+
+    private static String toClassName(String name) {
+        return name.substring(0, name.length() - ".class".length()).replace('/', '.');
+    }
+
+    /**
+     * Hashes the shape of the given classes: super class, interfaces, and the signatures and modifiers of all
+     * methods. Two classes with the same shape lead to the same call dispatch in the class hierarchy analysis.
+     * Classes that cannot be found in the view are left out.
+     */
+    public static Map<String, Long> hashClassShapes(JavaView view, Collection<String> classNames) {
+        Map<String, Long> shapes = new HashMap<>();
+        JavaIdentifierFactory identifierFactory = JavaIdentifierFactory.getInstance();
+        MessageDigest digest = newDigest();
+        for (String className : classNames) {
+            view.getClass(identifierFactory.getClassType(className)).ifPresent(sootClass -> {
+                update(digest, shapeOf(sootClass));
+                shapes.put(className, toLong(digest.digest()));
+            });
+        }
+        return shapes;
+    }
+
+    private static String shapeOf(SootClass sootClass) {
+        StringBuilder shape = new StringBuilder();
+        shape.append(sootClass.getModifiers()).append('\n');
+        shape.append(sootClass.getSuperclass().map(ClassType::getFullyQualifiedName).orElse("")).append('\n');
+        sootClass.getInterfaces().stream()
+                .map(ClassType::getFullyQualifiedName)
+                .sorted()
+                .forEach(name -> shape.append(name).append('\n'));
+        sootClass.getMethods().stream()
+                .map(method -> method.getSignature() + " " + new TreeSet<>(method.getModifiers()))
+                .sorted()
+                .forEach(method -> shape.append(method).append('\n'));
+        return shape.toString();
+    }
+
+    /**
+     * Compares the class hashes of two runs.
+     */
+    public static ClassDiff diff(Map<String, Long> previous, Map<String, Long> current) {
+        Set<String> changed = new HashSet<>();
+        Set<String> removed = new HashSet<>();
+        for (Map.Entry<String, Long> entry : previous.entrySet()) {
+            Long hash = current.get(entry.getKey());
+            if (hash == null) {
+                removed.add(entry.getKey());
+            } else if (!hash.equals(entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        Set<String> added = current.keySet().stream()
+                .filter(className -> !previous.containsKey(className))
+                .collect(Collectors.toSet());
+        return new ClassDiff(changed, added, removed);
+    }
+
+    /**
+     * Patches the call graph of the previous run for the changed classes.
+     * The methods of the changed classes (the ones in the old graph, and the public ones in the new bytecode) are
+     * analyzed again with the same application-only CHA, except that calls into methods of the old graph that did not
+     * change are recorded without expanding them. Project methods that were not in the old graph are expanded as
+     * usual, so methods that became reachable get their calls too.
+     * Methods that are no longer called stay in the graph. Non-public ones cannot reach a public method anymore, so
+     * no path goes through them. Their third-party call counts also stay, which only makes the coverage filter use the
+     * precise check more often.
+     *
+     * @param previous       The call graph analysis of the previous run.
+     * @param view           A view of the new jar.
+     * @param changedClasses The project classes whose bytecode changed.
+     * @param entryPoints    The public methods of the changed classes in the new jar.
+     * @param isThirdParty   Tells which methods are third-party methods.
+     */
+    public static CallGraphCache.CallGraphData patchCallGraph(CallGraphCache.CallGraphData previous, JavaView view,
+                                                             Set<String> changedClasses,
+                                                             Set<MethodSignature> entryPoints,
+                                                             Predicate<MethodSignature> isThirdParty) {
+        CompactCallGraph oldGraph = previous.projectCallGraph();
+        Predicate<MethodSignature> inChangedClass = method ->
+                changedClasses.contains(method.getDeclClassType().getFullyQualifiedName());
+        Set<MethodSignature> roots = new LinkedHashSet<>(entryPoints);
+        for (int id = 0; id < oldGraph.methodCount(); id++) {
+            if (inChangedClass.test(oldGraph.methodOf(id))) {
+                roots.add(oldGraph.methodOf(id));
+            }
+        }
+        Predicate<MethodSignature> isBoundary = method -> isThirdParty.test(method)
+                || (oldGraph.idOf(method) >= 0 && !inChangedClass.test(method));
+        sootup.callgraph.CallGraph cg = new ApplicationOnlyClassHierarchyAnalysis(view, isBoundary)
+                .initialize(new ArrayList<>(roots));
+        log.info("Re-analyzed {} methods of {} changed classes", roots.size(), changedClasses.size());
+        MethodExtractor.CallGraphSweep sweep = MethodExtractor.sweepCallGraph(cg, isThirdParty);
+
+        // The old methods keep their IDs. Outgoing edges of the changed methods are replaced by the new ones.
+        CompactCallGraph.Builder graphBuilder = new CompactCallGraph.Builder();
+        for (int id = 0; id < oldGraph.methodCount(); id++) {
+            graphBuilder.addMethod(oldGraph.methodOf(id));
+        }
+        for (int id = 0; id < oldGraph.methodCount(); id++) {
+            if (inChangedClass.test(oldGraph.methodOf(id))) {
+                continue;
+            }
+            for (int i = oldGraph.calleesStart(id); i < oldGraph.calleesEnd(id); i++) {
+                graphBuilder.addCall(id, oldGraph.calleeAt(i));
+            }
+        }
+        CompactCallGraph newCalls = sweep.projectCallGraph();
+        for (int id = 0; id < newCalls.methodCount(); id++) {
+            int callerId = graphBuilder.addMethod(newCalls.methodOf(id));
+            for (int i = newCalls.calleesStart(id); i < newCalls.calleesEnd(id); i++) {
+                graphBuilder.addCall(callerId, graphBuilder.addMethod(newCalls.methodOf(newCalls.calleeAt(i))));
+            }
+        }
+
+        Set<MethodSignature> newEntryPoints = previous.entryPoints().stream()
+                .filter(inChangedClass.negate())
+                .collect(Collectors.toCollection(HashSet::new));
+        newEntryPoints.addAll(entryPoints);
+
+        // The boundary methods have no calls in the partial graph, so all new pairs come from re-analyzed methods.
+        Set<Map.Entry<MethodSignature, MethodSignature>> pairs = new LinkedHashSet<>();
+        Map<Map.Entry<MethodSignature, MethodSignature>, int[]> callSiteLines = new HashMap<>();
+        for (Map.Entry<MethodSignature, MethodSignature> pair : previous.thirdPartyPairs()) {
+            if (!inChangedClass.test(pair.getKey())) {
+                pairs.add(pair);
+                int[] lines = previous.callSiteLines().get(pair);
+                if (lines != null) {
+                    callSiteLines.put(pair, lines);
+                }
+            }
+        }
+        pairs.addAll(sweep.thirdPartyPairs());
+        callSiteLines.putAll(sweep.callSiteLines());
+
+        Map<String, Map<String, Integer>> targetCallCounts = new HashMap<>();
+        previous.targetCallCounts().forEach((className, counts) -> {
+            if (!changedClasses.contains(className)) {
+                targetCallCounts.put(className, new HashMap<>(counts));
+            }
+        });
+        sweep.targetCallCounts().forEach((className, counts) -> counts.forEach((method, count) ->
+                targetCallCounts.computeIfAbsent(className, k -> new HashMap<>()).merge(method, count, Integer::sum)));
+        return new CallGraphCache.CallGraphData(newEntryPoints, graphBuilder.build(), pairs, targetCallCounts,
+                callSiteLines);
+    }
+
+    /**
+     * Returns the methods that are reachable (forward, including the start methods themselves) from the methods of
+     * the changed classes in the given graph.
+     */
+    public static Set<MethodSignature> reachableFromChangedClasses(CompactCallGraph graph, Set<String> changedClasses) {
+        BitSet visited = new BitSet(graph.methodCount());
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int id = 0; id < graph.methodCount(); id++) {
+            if (changedClasses.contains(graph.methodOf(id).getDeclClassType().getFullyQualifiedName())) {
+                visited.set(id);
+                queue.add(id);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            for (int i = graph.calleesStart(current); i < graph.calleesEnd(current); i++) {
+                int callee = graph.calleeAt(i);
+                if (!visited.get(callee)) {
+                    visited.set(callee);
+                    queue.add(callee);
+                }
+            }
+        }
+        Set<MethodSignature> reachable = new HashSet<>();
+        visited.stream().forEach(id -> reachable.add(graph.methodOf(id)));
+        return reachable;
+    }
+
+    private static void writeHashes(DataOutputStream out, Map<String, Long> hashes) throws IOException {
+        out.writeInt(hashes.size());
+        for (Map.Entry<String, Long> entry : hashes.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    private static Map<String, Long> readHashes(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, Long> hashes = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            hashes.put(in.readUTF(), in.readLong());
+        }
+        return hashes;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static long toLong(byte[] hash) {
+        return ByteBuffer.wrap(hash).getLong();
+    }
+
+    /**
+     * The state kept between two incremental runs.
+     *
+     * @param classHashes   Bytecode hash of every class in the jar.
+     * @param classShapes   Shape hash of every project class.
+     * @param callGraphData The call graph analysis of the run.
+     */
+    public record State(Map<String, Long> classHashes, Map<String, Long> classShapes,
+                        CallGraphCache.CallGraphData callGraphData) {
+    }
+
+    /**
+     * The classes that changed, were added or were removed since the previous run.
+     */
+    public record ClassDiff(Set<String> changed, Set<String> added, Set<String> removed) {
+
+        public boolean isEmpty() {
+            return changed.isEmpty() && added.isEmpty() && removed.isEmpty();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -16,7 +17,9 @@ public class Main {
         long startTime = System.nanoTime();
         int exitCode = 1;
         try {
-            exitCode = new CommandLine(new CLIEntryPoint()).execute(args);
+            exitCode = new CommandLine(new CLIEntryPoint())
+                    .setCaseInsensitiveEnumValuesAllowed(true)
+                    .execute(args);
         } finally {
             long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
             log.info("CLI execution completed in {} ms", elapsedMillis);
@@ -37,11 +40,22 @@ public class Main {
         @CommandLine.Option(
                 names = {"-j", "--jar-path"},
                 paramLabel = "JAR-PATH",
-                description = "The path to the JAR file to analyze",
+                description = "The path to the JAR file or classes directory (e.g., target/classes) to analyze. "
+                        + "Without --dependencies, this should be the jar with dependencies.",
                 required = true
         )
         String jarPath;
 
+        @CommandLine.Option(
+                names = {"-d", "--dependencies"},
+                paramLabel = "DEPENDENCIES",
+                description = "The dependency jars of the project, separated by the path separator (as in a class "
+                        + "path). Dependency classes are only loaded when the analysis needs them, so the analysis "
+                        + "does not read every class of the dependency tree.",
+                split = "${sys:path.separator}"
+        )
+        List<Path> dependencyPaths = new ArrayList<>();
+
         @CommandLine.Option(
                 names = {"-r", "--report-prefix"},
                 paramLabel = "REPORT-PREFIX",
@@ -81,10 +95,26 @@ public class Main {
                 names = {"-c", "--jacoco-files"},
                 paramLabel = "JACOCO-FILES",
                 description = "One or more JaCoCo XML report files",
-                required = true,
                 arity = "1..*"
         )
-        List<Path> jacocoFiles;
+        List<Path> jacocoFiles = new ArrayList<>();
+
+        @CommandLine.Option(
+                names = {"-e", "--jacoco-exec"},
+                paramLabel = "EXEC-FILES",
+                description = "One or more JaCoCo execution data files (jacoco.exec) recorded for the classes in "
+                        + "--jar-path. The coverage is computed from them, so no JaCoCo report is needed.",
+                arity = "1..*"
+        )
+        List<Path> jacocoExecFiles = new ArrayList<>();
+
+        @CommandLine.Option(
+                names = {"--html-coverage-fallback"},
+                description = "Check the calls without line coverage by name in the JaCoCo HTML reports next to the XML "
+                        + "reports. Needed for classes compiled without line numbers, or for report directories "
+                        + "without jacoco.xml. Without it, these calls are not covered."
+        )
+        boolean htmlCoverageFallback;
 
         @CommandLine.Option(
                 names = {"-a", "--enable-analysis"},
@@ -94,10 +124,59 @@ public class Main {
         )
         boolean enableAnalysisLogs;
 
+        @CommandLine.Option(
+                names = {"-t", "--threads"},
+                paramLabel = "THREADS",
+                description = "Number of worker threads for the path search. The output is the same for any value. "
+                        + "Defaults to 1 (serial search).",
+                defaultValue = "1"
+        )
+        int threads;
+
+        @CommandLine.Option(
+                names = {"-g", "--call-graph"},
+                paramLabel = "ALGORITHM",
+                description = "The call graph algorithm: ${COMPLETION-CANDIDATES}. RTA only dispatches virtual calls to "
+                        + "instantiated classes, which is less precise but faster on very large jars. "
+                        + "Defaults to CHA.",
+                defaultValue = "CHA"
+        )
+        CallGraphType callGraphType;
+
+        @CommandLine.Option(
+                names = {"--application-only"},
+                negatable = true,
+                description = "Build the call graph for project code only: calls into third-party methods are "
+                        + "recorded, but their bodies are not expanded. Use --no-application-only to expand the "
+                        + "whole jar. Defaults to true.",
+                defaultValue = "true",
+                fallbackValue = "true"
+        )
+        boolean applicationOnly;
+
+        @CommandLine.Option(
+                names = {"--cache-dir"},
+                paramLabel = "CACHE-DIR",
+                description = "Directory for the call graph cache. If set, the call graph, the entry points and the "
+                        + "third-party call pairs are stored there, and later runs with the same jar, package map "
+                        + "and options load them instead of analyzing the jar again."
+        )
+        Path cacheDir;
+
+        @CommandLine.Option(
+                names = {"--incremental"},
+                description = "Only analyze the classes that changed since the previous run with the same options, "
+                        + "and merge the result into the previous report. Needs --cache-dir. Falls back to a full "
+                        + "analysis when classes were added or removed, or when dependencies changed."
+        )
+        boolean incremental;
+
         @Override
         public void run() {
-            MethodExtractor.process(jarPath, reportFile, packageName, packageMapPath, sourceCodePath,
-                    jacocoFiles.stream().map(Path::toFile).toList(), enableAnalysisLogs);
+            AnalysisOptions options = new AnalysisOptions(jarPath, dependencyPaths, reportFile, packageName, packageMapPath,
+                    sourceCodePath, jacocoFiles.stream().map(Path::toFile).toList(), jacocoExecFiles,
+                    htmlCoverageFallback, enableAnalysisLogs, Math.max(1, threads), callGraphType, applicationOnly, cacheDir, incremental);
+            MethodExtractor.process(new AnalysisSession(options));
         }
     }
 }
@@ -2,81 +2,280 @@ package io.github.sparkrew.fika.api_finder;
 
 import io.github.sparkrew.fika.api_finder.model.AnalysisResult;
 import io.github.sparkrew.fika.api_finder.model.ThirdPartyPath;
-import io.github.sparkrew.fika.api_finder.utils.PackageMatcher;
+import io.github.sparkrew.fika.api_finder.utils.CoverageLogger;
+import io.github.sparkrew.fika.api_finder.utils.NameFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sootup.callgraph.CallGraph;
 import sootup.callgraph.CallGraphAlgorithm;
-import sootup.callgraph.ClassHierarchyAnalysisAlgorithm;
-import sootup.core.inputlocation.AnalysisInputLocation;
 import sootup.core.model.SootMethod;
 import sootup.core.signatures.MethodSignature;
-import sootup.java.bytecode.frontend.inputlocation.JavaClassPathAnalysisInputLocation;
+import sootup.java.core.JavaIdentifierFactory;
+import sootup.java.core.JavaSootClass;
 import sootup.java.core.views.JavaView;
 
 import java.io.File;
-import java.nio.file.Path;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class MethodExtractor {
 
     static final Logger log = LoggerFactory.getLogger(MethodExtractor.class);
-    static Set<String> ignoredPrefixes;
 
     /**
      * This method processes the JAR file to extract third party API calls and their paths.
      * It initializes the call graph, and finds paths that involve third-party method calls.
+     * All steps run with the given session bound to the calling thread, so they share its view over the jar and its
+     * caches. The coverage log is written at the end, also if the analysis failed.
      *
-     * @param pathToJar      Path to the JAR file to analyze.
-     * @param reportPath     Path where the analysis report will be written.
-     * @param packageName    The package name of the project under consideration to filter the events.
-     * @param packageMapPath Path to the package map file that contains the mapping of package names to Maven coordinates.
-     * @param sourceRootPath Path to the project source code root directory (optional, can be null). If provided, actual source code will be extracted instead of Jimple IR.
-     * @param jacocoHtmlDirs List of JaCoCo HTML report directories to filter already covered methods (optional, can be empty).
+     * @param session The session that holds the analysis options.
      */
-    public static void process(String pathToJar, String reportPath, String packageName, Path packageMapPath,
-                               String sourceRootPath, List<File> jacocoHtmlDirs, boolean enableAnalysisLogs) {
+    public static void process(AnalysisSession session) {
+        session.run(() -> {
+            try {
+                process(session, session.getOptions());
+            } finally {
+                CoverageLogger.flush();
+            }
+        });
+    }
+
+    private static void process(AnalysisSession session, AnalysisOptions options) {
         // Start reading the jar with sootup. Here we use all the public methods as the entry points.
         // That means we don't plan to do anything (generate tests etc) for private methods.
         // Don't want any more complications with reflections and all.
         // ToDo: Add the if condition with the enable-logs flag
         // We analyze all third-party method calls in the entire project (including unreachable code)
         // and log them for reference.
-        AllMethodCallAnalyzer.analyzeAndLogDetailed(pathToJar, packageName, packageMapPath);
-        ignoredPrefixes = PackageMatcher.loadIgnoredPrefixes(packageName);
-        JavaView view = createJavaView(pathToJar);
-        Set<MethodSignature> entryPoints = detectEntryPoints(view, packageName);
-        log.info("Found " + entryPoints.size() + " public methods as entry points.");
-        AnalysisResult result = analyzeReachability(view, entryPoints, packageMapPath, jacocoHtmlDirs, sourceRootPath,
-                enableAnalysisLogs);
+        AllMethodCallAnalyzer.analyzeAndLogDetailed(session);
+        IncrementalAnalysis incrementalAnalysis = null;
+        Map<String, Long> classHashes = null;
+        if (options.incremental() && options.cacheDir() == null) {
+            log.warn("The incremental mode needs a cache directory, running a full analysis");
+        } else if (options.incremental()
+                && (options.callGraphType() != CallGraphType.CHA || !options.applicationOnly())) {
+            // RTA and the whole-jar graph depend on code outside the changed classes (instantiated types, library
+            // callbacks), so the graph cannot be patched class by class.
+            log.warn("The incremental mode only supports the application-only CHA call graph, running a full "
+                    + "analysis");
+        } else if (options.incremental()) {
+            try {
+                // The execution data files are coverage inputs like the report directories
+                List<File> coverageInputs = new ArrayList<>(options.jacocoHtmlDirs());
+                options.jacocoExecFiles().forEach(execFile -> coverageInputs.add(execFile.toFile()));
+                incrementalAnalysis = IncrementalAnalysis.forInputs(options.cacheDir(), options.pathToJar(),
+                        options.dependencyPaths(), options.reportPath(), options.packageName(),
+                        options.packageMapPath(), options.sourceRootPath(), coverageInputs,
+                        session.getIgnoredPrefixes(), options.callGraphType(), options.applicationOnly());
+                classHashes = IncrementalAnalysis.hashClasses(options.pathToJar());
+                if (processIncrementally(session, incrementalAnalysis, classHashes)) {
+                    log.info("All analysis reports written successfully.");
+                    return;
+                }
+            } catch (IOException e) {
+                log.warn("Could not prepare the incremental analysis, running a full analysis", e);
+                incrementalAnalysis = null;
+            }
+        }
+        CallGraphCache.CallGraphData callGraphData = loadOrBuildCallGraph(session);
+        AnalysisResult result = callGraphData == null
+                ? new AnalysisResult(new ArrayList<>())
+                : analyzeReachability(callGraphData, options);
         // Write the main output file.
-        PathWriter.writeAllFormats(result, reportPath, sourceRootPath, enableAnalysisLogs);
+        PathWriter.writeAllFormats(result, options.reportPath(), options.sourceRootPath(),
+                options.enableAnalysisLogs());
+        if (incrementalAnalysis != null && callGraphData != null) {
+            Set<String> projectClasses = classHashes.keySet().stream()
+                    .filter(className -> isProjectClass(className, options.packageName()))
+                    .collect(Collectors.toSet());
+            Map<String, Long> classShapes = IncrementalAnalysis.hashClassShapes(session.getView(), projectClasses);
+            incrementalAnalysis.store(new IncrementalAnalysis.State(classHashes, classShapes, callGraphData));
+        }
         log.info("All analysis reports written successfully.");
     }
 
-    private static JavaView createJavaView(String pathToJar) {
-        AnalysisInputLocation inputLocation = new JavaClassPathAnalysisInputLocation(pathToJar);
-        return new JavaView(inputLocation);
+    /**
+     * Updates the previous report for the classes that changed since the previous run (see
+     * {@link IncrementalAnalysis}). Returns false if the previous run cannot be updated and a full analysis is
+     * needed.
+     */
+    private static boolean processIncrementally(AnalysisSession session, IncrementalAnalysis incrementalAnalysis,
+                                                Map<String, Long> classHashes) {
+        AnalysisOptions options = session.getOptions();
+        IncrementalAnalysis.State state = incrementalAnalysis.load();
+        if (state == null || !PathWriter.hasFullMethodsReport(options.reportPath())) {
+            log.info("No previous run found, running a full analysis");
+            return false;
+        }
+        IncrementalAnalysis.ClassDiff diff = IncrementalAnalysis.diff(state.classHashes(), classHashes);
+        if (diff.isEmpty()) {
+            log.info("No class changed since the previous run, the previous report is up to date");
+            return true;
+        }
+        if (!diff.added().isEmpty() || !diff.removed().isEmpty()) {
+            log.info("{} classes were added and {} removed since the previous run, running a full analysis",
+                    diff.added().size(), diff.removed().size());
+            return false;
+        }
+        if (diff.changed().stream().anyMatch(className -> !isProjectClass(className, options.packageName()))) {
+            log.info("Dependency classes changed since the previous run, running a full analysis");
+            return false;
+        }
+        try {
+            JavaView view = session.getView();
+            Map<String, Long> changedShapes = IncrementalAnalysis.hashClassShapes(view, diff.changed());
+            for (String className : diff.changed()) {
+                if (!Objects.equals(state.classShapes().get(className), changedShapes.get(className))) {
+                    log.info("The methods or super types of {} changed, running a full analysis", className);
+                    return false;
+                }
+            }
+            log.info("{} classes changed since the previous run: {}", diff.changed().size(), diff.changed());
+            Set<MethodSignature> changedEntryPoints = detectEntryPoints(view, diff.changed());
+            CallGraphCache.CallGraphData previous = state.callGraphData();
+            CallGraphCache.CallGraphData patched = IncrementalAnalysis.patchCallGraph(previous, view, diff.changed(),
+                    changedEntryPoints, session.getThirdPartyClassifier());
+            session.setCallGraphData(patched);
+            registerTargetCalls(patched.targetCallCounts());
+            // Every path that can change goes through a changed method, so its direct caller can be reached from a
+            // changed method, in the old or in the new graph. The report identifies direct callers by their filtered
+            // names, which are not unique (e.g., anonymous classes), so all pairs with a matching name are redone.
+            Set<MethodSignature> affected = new HashSet<>(IncrementalAnalysis.reachableFromChangedClasses(
+                    previous.projectCallGraph(), diff.changed()));
+            affected.addAll(IncrementalAnalysis.reachableFromChangedClasses(patched.projectCallGraph(),
+                    diff.changed()));
+            Set<String> affectedNames = affected.stream()
+                    .map(NameFilter::getFilteredMethodSignatureWithParams)
+                    .collect(Collectors.toSet());
+            Set<Map.Entry<MethodSignature, MethodSignature>> affectedPairs = patched.thirdPartyPairs().stream()
+                    .filter(pair -> affectedNames.contains(NameFilter.getFilteredMethodSignatureWithParams(
+                            pair.getKey())))
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            log.info("Recomputing {} of {} third-party call pairs", affectedPairs.size(),
+                    patched.thirdPartyPairs().size());
+            AnalysisResult result = analyzeReachability(new CallGraphCache.CallGraphData(patched.entryPoints(),
+                    patched.projectCallGraph(), affectedPairs, patched.targetCallCounts(), patched.callSiteLines()),
+                    options);
+            PathWriter.mergeIntoPreviousReport(result, options.reportPath(), options.sourceRootPath(),
+                    options.enableAnalysisLogs(), affectedNames);
+            Map<String, Long> classShapes = new HashMap<>(state.classShapes());
+            classShapes.putAll(changedShapes);
+            incrementalAnalysis.store(new IncrementalAnalysis.State(classHashes, classShapes, patched));
+            return true;
+        } catch (Exception e) {
+            log.warn("Incremental analysis failed, running a full analysis", e);
+            return false;
+        }
     }
 
-    private static AnalysisResult analyzeReachability(JavaView view, Set<MethodSignature> entryPoints,
-                                                      Path packageMapPath, List<File> jacocoHtmlDirs,
-                                                      String sourceRootPath, boolean enableAnalysisLogs) {
+    /**
+     * Loads the call graph analysis from the cache, or builds it from the jar (and stores it in the cache).
+     * The result is also kept in the session. Returns null if the call graph could not be built.
+     */
+    private static CallGraphCache.CallGraphData loadOrBuildCallGraph(AnalysisSession session) {
+        AnalysisOptions options = session.getOptions();
+        try {
+            CallGraphCache cache = null;
+            if (options.cacheDir() != null) {
+                try {
+                    cache = CallGraphCache.forInputs(options.cacheDir(), options.pathToJar(),
+                            options.dependencyPaths(), options.packageMapPath(), options.packageName(),
+                            session.getIgnoredPrefixes(), options.callGraphType(), options.applicationOnly());
+                    long startTime = System.nanoTime();
+                    CallGraphCache.CallGraphData cached = cache.load();
+                    if (cached != null) {
+                        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                        log.info("Loaded call graph analysis from {} in {} ms", cache.getCacheFile(), elapsedMillis);
+                        registerTargetCalls(cached.targetCallCounts());
+                        session.setCallGraphData(cached);
+                        return cached;
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not use the call graph cache in {}", options.cacheDir(), e);
+                }
+            }
+            Set<MethodSignature> entryPoints = detectEntryPoints(session.getApplicationClasses(),
+                    options.packageName());
+            log.info("Found " + entryPoints.size() + " public methods as entry points.");
+            CallGraphCache.CallGraphData callGraphData = buildCallGraph(session, entryPoints);
+            registerTargetCalls(callGraphData.targetCallCounts());
+            session.setCallGraphData(callGraphData);
+            if (cache != null) {
+                cache.store(callGraphData);
+            }
+            return callGraphData;
+        } catch (Exception e) {
+            log.error("Failed to initialize call graph.", e);
+            return null;
+        }
+    }
+
+    private static CallGraphCache.CallGraphData buildCallGraph(AnalysisSession session,
+                                                               Set<MethodSignature> entryPoints) {
+        AnalysisOptions options = session.getOptions();
+        // Each package is classified once, and the classification is shared by the call graph and the sweep.
+        Predicate<MethodSignature> isThirdParty = session.getThirdPartyClassifier();
+        // Paths end at the first third-party call, so in application-only mode the call graph does not expand
+        // the bodies of third-party methods.
+        CallGraphAlgorithm algorithm = options.callGraphType().create(session.getView(), options.applicationOnly(),
+                isThirdParty);
+        long startTime = System.nanoTime();
+        CallGraph cg = algorithm.initialize(new ArrayList<>(entryPoints));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        log.info("Built {} call graph{} with {} methods and {} calls in {} ms", options.callGraphType(),
+                options.applicationOnly() ? " (application only)" : "", cg.getMethodSignatures().size(),
+                cg.callCount(), elapsedMillis);
+        // Identify all third-party methods that are actually called in the codebase. We go backwards from
+        // third-party methods to public methods to find all paths. This is because we expect this would be more
+        // efficient than doing it the other way round, as there are usually much fewer third-party methods than
+        // public methods.
+        // The same walk over the call graph also builds the reverse call graph for efficient backward traversal.
+        // Otherwise, it takes painfully long time to run with the forward graph (from public methods to third
+        // party methods). Third-party methods are pruned there, so the backward search never has to check them.
+        CallGraphSweep sweep = sweepCallGraph(cg, isThirdParty);
+        return new CallGraphCache.CallGraphData(entryPoints, sweep.projectCallGraph(), sweep.thirdPartyPairs(),
+                sweep.targetCallCounts(), sweep.callSiteLines());
+    }
+
+    /**
+     * Registers the third-party call counts of each class for the coverage filter.
+     */
+    private static void registerTargetCalls(Map<String, Map<String, Integer>> targetCallCounts) {
+        targetCallCounts.forEach((className, counts) -> counts.forEach((thirdPartyMethod, count) ->
+                CoverageFilter.registerTargetCalls(className, thirdPartyMethod, count)));
+    }
+
+    private static AnalysisResult analyzeReachability(CallGraphCache.CallGraphData callGraphData,
+                                                      AnalysisOptions options) {
+        List<File> jacocoHtmlDirs = options.jacocoHtmlDirs();
+        String sourceRootPath = options.sourceRootPath();
+        boolean enableAnalysisLogs = options.enableAnalysisLogs();
+        int threads = options.threads();
         List<ThirdPartyPath> thirdPartyPaths = new ArrayList<>();
         try {
-            CallGraphAlgorithm cha = new ClassHierarchyAnalysisAlgorithm(view);
-            CallGraph cg = cha.initialize(new ArrayList<>(entryPoints));
-            // Identify all third-party methods that are actually called in the codebase. We go backwards from
-            // third-party methods to public methods to find all paths. This is because we expect this would be more
-            // efficient than doing it the other way round, as there are usually much fewer third-party methods than
-            // public methods.
-            Set<Map.Entry<MethodSignature, MethodSignature>> thirdPartyPairs =
-                    findAllThirdPartyMethodPairs(cg, packageMapPath, jacocoHtmlDirs, enableAnalysisLogs);
+            Set<MethodSignature> entryPoints = callGraphData.entryPoints();
+            CompactCallGraph projectCallGraph = callGraphData.projectCallGraph();
+            log.info("Project call graph has {} methods and {} edges", projectCallGraph.methodCount(),
+                    projectCallGraph.edgeCount());
+            if (!options.jacocoExecFiles().isEmpty()) {
+                loadExecutionData(options);
+            }
+            loadCoverage(jacocoHtmlDirs);
+            Set<Map.Entry<MethodSignature, MethodSignature>> thirdPartyPairs = filterCoveredPairs(
+                    callGraphData.thirdPartyPairs(), callGraphData.callSiteLines(), jacocoHtmlDirs,
+                    options.htmlCoverageFallback(), enableAnalysisLogs);
             log.info("Found {} third-party method call pairs in call graph", thirdPartyPairs.size());
-            // Build reverse call graph for efficient backward traversal. Otherwise, it takes painfully long time to
-            // run with the forward graph (from public methods to third party methods).
-            Map<MethodSignature, Set<MethodSignature>> reverseCallGraph = buildReverseCallGraph(cg);
+            // The BFS is the expensive part, so it runs once per distinct direct caller (possibly in parallel) before
+            // we walk the pairs. The pairs are still walked serially in the same order, so the output is identical
+            // no matter how many threads were used.
+            PublicCallerIndex publicCallerIndex = PublicCallerIndex.build(
+                    thirdPartyPairs.stream().map(Map.Entry::getKey).toList(),
+                    projectCallGraph,
+                    entryPoints,
+                    threads);
             // For each third-party call site, find the public method that leads to it
             for (Map.Entry<MethodSignature, MethodSignature> pair : thirdPartyPairs) {
                 MethodSignature directCaller = pair.getKey();
@@ -104,20 +303,11 @@ public class MethodExtractor {
                     );
                     thirdPartyPaths.add(tpPath);
                 } else {
-                    // If the direct caller is not public, we need to do BFS to find
-                    // the first public methods that can reach this direct caller
-                    List<List<MethodSignature>> pathsToPublicMethods = findPathsToFirstPublicCallers(
-                            reverseCallGraph,
-                            directCaller,
-                            entryPoints,
-                            packageMapPath
-                    );
+                    // If the direct caller is not public, the index holds the paths from the first public methods
+                    // that can reach this direct caller.
                     // For each path found from public method to direct caller, append the third party method
-                    for (List<MethodSignature> pathToDirectCaller : pathsToPublicMethods) {
-                        // The path is in reverse order (from directCaller to publicMethod)
-                        // We need to reverse it and append the third party method
+                    for (List<MethodSignature> pathToDirectCaller : publicCallerIndex.pathsTo(directCaller)) {
                         List<MethodSignature> completePath = new ArrayList<>(pathToDirectCaller);
-                        Collections.reverse(completePath);
                         completePath.add(thirdPartyMethod);
                         MethodSignature publicMethod = completePath.get(0);
                         ThirdPartyPath tpPath = new ThirdPartyPath(
@@ -132,137 +322,137 @@ public class MethodExtractor {
             }
             log.info("Collected " + thirdPartyPaths.size() + " third-party paths.");
         } catch (Exception e) {
-            log.error("Failed to initialize call graph.", e);
+            log.error("Failed to collect third-party paths.", e);
         }
         return new AnalysisResult(thirdPartyPaths);
     }
 
     /**
-     * Find all third-party method call pairs (caller -> third-party method) in the call graph
+     * Computes the coverage of the project classes from the JaCoCo execution data files for the coverage filter.
+     */
+    private static void loadExecutionData(AnalysisOptions options) {
+        long startTime = System.nanoTime();
+        try {
+            CoverageFilter.useExecutionData(CoverageIndex.fromExecutionData(options.jacocoExecFiles(),
+                    options.pathToJar(), options.packageName()));
+            log.info("Read the execution data in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        } catch (IOException e) {
+            log.error("Could not read the execution data {}, it is not used to filter covered calls",
+                    options.jacocoExecFiles(), e);
+        }
+    }
+
+    /**
+     * Merges the XML reports and the execution data once, before the pairs are filtered.
+     */
+    private static void loadCoverage(List<File> jacocoHtmlDirs) {
+        long startTime = System.nanoTime();
+        try {
+            CoverageFilter.loadCoverage(jacocoHtmlDirs);
+            log.info("Loaded the coverage of {} report directories in {} ms", jacocoHtmlDirs.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        } catch (IOException e) {
+            log.error("Could not read the JaCoCo XML reports in {}", jacocoHtmlDirs, e);
+        }
+    }
+
+    /**
+     * Walks the call graph once. The given classifier is expected to be memoized, so every method is classified once.
+     * Each call from a project method either goes to a third-party method, where it is counted for the coverage
+     * filter and recorded as a (caller, third-party method) pair with the source line of the call, or it stays inside
+     * the project and becomes an edge of the project call graph.
      */
-    private static Set<Map.Entry<MethodSignature, MethodSignature>> findAllThirdPartyMethodPairs(
-            CallGraph cg, Path packageMapPath, List<File> jacocoHtmlDirs, boolean enableAnalysisLogs) {
-        // We do two iterations because we get coverage check in two steps. First, we register all to check if
-        // the same class has multiple calls to the same third party method.
+    static CallGraphSweep sweepCallGraph(CallGraph cg, Predicate<MethodSignature> isThirdParty) {
         Set<Map.Entry<MethodSignature, MethodSignature>> allThirdPartyPairs = new HashSet<>();
+        Map<Map.Entry<MethodSignature, MethodSignature>, BitSet> lines = new HashMap<>();
+        Map<String, Map<String, Integer>> targetCallCounts = new HashMap<>();
+        CompactCallGraph.Builder graphBuilder = new CompactCallGraph.Builder();
         for (MethodSignature method : cg.getMethodSignatures()) {
             // Skip if the caller itself is a third-party method
-            if (isThirdPartyMethod(method, packageMapPath)) {
+            if (isThirdParty.test(method)) {
                 continue;
             }
+            int callerId = graphBuilder.addMethod(method);
             String fullClassName = method.getDeclClassType().getFullyQualifiedName();
             for (CallGraph.Call call : cg.callsFrom(method)) {
                 MethodSignature target = call.getTargetMethodSignature();
-                if (isThirdPartyMethod(target, packageMapPath)) {
-                    // Use full signature with parameters to handle method overloading
+                if (isThirdParty.test(target)) {
+                    // We count every call (not only unique pairs) to check if the same class has multiple calls
+                    // to the same third party method. Use full signature with parameters to handle method overloading
                     String thirdPartyMethod = target.getDeclClassType().getFullyQualifiedName() + "."
                             + target.getName()
                             + "(" + target.getParameterTypes().stream()
                             .map(sootup.core.types.Type::toString)
                             .collect(java.util.stream.Collectors.joining(", ")) + ")";
-                    CoverageFilter.registerTargetCall(fullClassName, thirdPartyMethod);
+                    targetCallCounts.computeIfAbsent(fullClassName, k -> new HashMap<>())
+                            .merge(thirdPartyMethod, 1, Integer::sum);
                     // Track all unique third-party call pairs
-                    allThirdPartyPairs.add(Map.entry(method, target));
+                    Map.Entry<MethodSignature, MethodSignature> pair = Map.entry(method, target);
+                    allThirdPartyPairs.add(pair);
+                    // The bytecode keeps the line of each call, so the coverage filter can look up that exact line
+                    int line = callSiteLine(call);
+                    if (line > 0) {
+                        lines.computeIfAbsent(pair, k -> new BitSet()).set(line);
+                    }
+                } else {
+                    graphBuilder.addCall(callerId, graphBuilder.addMethod(target));
                 }
             }
         }
         log.info("Total unique third-party method call pairs in the call graph (public or non-public): {}",
                 allThirdPartyPairs.size());
-        // If a class only has one unique call to a third party method, we get coverage in the simple way by only
-        // analysing the html files. If it has multiple calls to the same third party method, we need to analyze the
-        // xml files.
-        Set<Map.Entry<MethodSignature, MethodSignature>> thirdPartyPairs = new HashSet<>();
-        Set<Map.Entry<MethodSignature, MethodSignature>> skippedDueToCov = new HashSet<>();
-        for (MethodSignature method : cg.getMethodSignatures()) {
-            // Skip if the caller itself is a third-party method
-            if (isThirdPartyMethod(method, packageMapPath)) {
-                continue;
-            }
-            for (CallGraph.Call call : cg.callsFrom(method)) {
-                MethodSignature target = call.getTargetMethodSignature();
-                if (isThirdPartyMethod(target, packageMapPath)) {
-                    if (CoverageFilter.isAlreadyCoveredByTests(method, target, jacocoHtmlDirs, enableAnalysisLogs)) {
-                        skippedDueToCov.add(Map.entry(method, target));
-                        continue;
-                    }
-                    if (target.getName().equals("iterator")) {
-                        log.warn("Skipping iterator method {} in class {}", target, target.getDeclClassType().getFullyQualifiedName());
-                        continue;
-                    }
-                    thirdPartyPairs.add(Map.entry(method, target));
-                }
-            }
-        }
-        log.info("Unique third-party method call pairs after coverage filtering: {}", thirdPartyPairs.size());
-        log.info("Skipped {} third-party method call pairs due to coverage", skippedDueToCov.size());
-        return thirdPartyPairs;
+        Map<Map.Entry<MethodSignature, MethodSignature>, int[]> callSiteLines = new HashMap<>();
+        lines.forEach((pair, pairLines) -> callSiteLines.put(pair, pairLines.stream().toArray()));
+        return new CallGraphSweep(allThirdPartyPairs, graphBuilder.build(), targetCallCounts, callSiteLines);
     }
 
     /**
-     * Build a reverse call graph: maps each method to all methods that call it
+     * Returns the source line of the call, or -1 if the class was compiled without line numbers.
      */
-    private static Map<MethodSignature, Set<MethodSignature>> buildReverseCallGraph(CallGraph cg) {
-        Map<MethodSignature, Set<MethodSignature>> reverseGraph = new HashMap<>();
-        // We could have used the callsTo method here. Just don't wanna touch it when it works.
-        for (MethodSignature caller : cg.getMethodSignatures()) {
-            for (CallGraph.Call call : cg.callsFrom(caller)) {
-                MethodSignature callee = call.getTargetMethodSignature();
-                reverseGraph.computeIfAbsent(callee, k -> new HashSet<>()).add(caller);
-            }
+    private static int callSiteLine(CallGraph.Call call) {
+        if (call.getInvokableStmt() == null) {
+            return -1;
         }
-        return reverseGraph;
+        return call.getInvokableStmt().getPositionInfo().getStmtPosition().getFirstLine();
     }
 
     /**
-     * Find all shortest paths from the direct caller to public methods (entry points)
-     * by traversing backwards through the call graph using BFS.
-     * Returns the complete paths (in reverse order: from directCaller to publicMethod).
-     * Stops at the first public method found in each path (no intermediate public methods).
+     * Removes the pairs that are already covered by tests. This has to run after the sweep, because the coverage
+     * check needs the target call counts of the whole class.
      */
-    private static List<List<MethodSignature>> findPathsToFirstPublicCallers(
-            Map<MethodSignature, Set<MethodSignature>> reverseCallGraph,
-            MethodSignature directCaller,
-            Set<MethodSignature> entryPoints,
-            Path packageMapPath) {
-        List<List<MethodSignature>> completePaths = new ArrayList<>();
-        Set<MethodSignature> visited = new HashSet<>();
-        Deque<List<MethodSignature>> queue = new ArrayDeque<>();
-        // Start with the direct caller as the initial path
-        queue.add(List.of(directCaller));
-        visited.add(directCaller);
-        while (!queue.isEmpty()) {
-            List<MethodSignature> currentPath = queue.poll();
-            MethodSignature current = currentPath.get(currentPath.size() - 1);
-            // Get all methods that call the current method
-            Set<MethodSignature> callers = reverseCallGraph.getOrDefault(current, Collections.emptySet());
-            for (MethodSignature caller : callers) {
-                if (visited.contains(caller)) {
-                    continue;
-                }
-                // Skip third-party methods (we only want project methods in the path)
-                if (isThirdPartyMethod(caller, packageMapPath)) {
-                    continue;
-                }
-                visited.add(caller);
-                // Build the new path by appending this caller
-                List<MethodSignature> newPath = new ArrayList<>(currentPath);
-                newPath.add(caller);
-                // If this is a public method (entry point), we found a complete path
-                // and stop traversing backward from it (we want first public method only)
-                if (entryPoints.contains(caller)) {
-                    completePaths.add(newPath);
-                } else {
-                    // Only continue BFS if it's not a public method
-                    queue.add(newPath);
-                }
+    private static Set<Map.Entry<MethodSignature, MethodSignature>> filterCoveredPairs(
+            Set<Map.Entry<MethodSignature, MethodSignature>> allThirdPartyPairs,
+            Map<Map.Entry<MethodSignature, MethodSignature>, int[]> callSiteLines, List<File> jacocoHtmlDirs,
+            boolean htmlCoverageFallback, boolean enableAnalysisLogs) {
+        // The coverage of a call comes from its source lines. Only with the HTML fallback, calls without line
+        // coverage are checked in the html files, and in the xml files if the class has several calls to the same
+        // third party method.
+        Set<Map.Entry<MethodSignature, MethodSignature>> thirdPartyPairs = new HashSet<>();
+        Set<Map.Entry<MethodSignature, MethodSignature>> skippedDueToCov = new HashSet<>();
+        for (Map.Entry<MethodSignature, MethodSignature> pair : allThirdPartyPairs) {
+            MethodSignature method = pair.getKey();
+            MethodSignature target = pair.getValue();
+            int[] lines = callSiteLines.getOrDefault(pair, new int[0]);
+            if (CoverageFilter.isAlreadyCoveredByTests(method, target, lines, jacocoHtmlDirs, htmlCoverageFallback,
+                    enableAnalysisLogs)) {
+                skippedDueToCov.add(pair);
+                continue;
+            }
+            if (target.getName().equals("iterator")) {
+                log.warn("Skipping iterator method {} in class {}", target, target.getDeclClassType().getFullyQualifiedName());
+                continue;
             }
+            thirdPartyPairs.add(pair);
         }
-        return completePaths;
+        log.info("Unique third-party method call pairs after coverage filtering: {}", thirdPartyPairs.size());
+        log.info("Skipped {} third-party method call pairs due to coverage", skippedDueToCov.size());
+        return thirdPartyPairs;
     }
 
     // Detect entry points - all public methods
-    private static Set<MethodSignature> detectEntryPoints(JavaView view, String packageName) {
-        return view.getClasses()
+    private static Set<MethodSignature> detectEntryPoints(List<JavaSootClass> applicationClasses,
+                                                          String packageName) {
+        return applicationClasses.stream()
                 .filter(c -> c.getType().getPackageName().getName().startsWith(packageName))
                 .flatMap(c -> c.getMethods().stream())
                 .filter(SootMethod::isPublic)
@@ -270,13 +460,31 @@ public class MethodExtractor {
                 .collect(Collectors.toSet());
     }
 
-    private static boolean isThirdPartyMethod(MethodSignature method, Path packageMapPath) {
-        String packageName = method.getDeclClassType().getPackageName().getName();
-        // The ignored prefixes are either loaded from a txt file or are hardcoded (for basic jdk methods). The
-        // package name is also added to the ignored prefixes.
-        for (String ignore : ignoredPrefixes) {
-            if (packageName.startsWith(ignore)) return false;
-        }
-        return PackageMatcher.containsPackage(packageName, packageMapPath);
+    // Detect the entry points of the given classes only
+    private static Set<MethodSignature> detectEntryPoints(JavaView view, Collection<String> classNames) {
+        JavaIdentifierFactory identifierFactory = JavaIdentifierFactory.getInstance();
+        return classNames.stream()
+                .flatMap(className -> view.getClass(identifierFactory.getClassType(className)).stream())
+                .flatMap(c -> c.getMethods().stream())
+                .filter(SootMethod::isPublic)
+                .map(SootMethod::getSignature)
+                .collect(Collectors.toSet());
+    }
+
+    private static boolean isProjectClass(String className, String packageName) {
+        int lastDot = className.lastIndexOf('.');
+        String classPackage = lastDot < 0 ? "" : className.substring(0, lastDot);
+        return classPackage.startsWith(packageName);
+    }
+
+    /**
+     * The result of the single walk over the call graph: all third-party call pairs before coverage filtering, the
+     * call graph between project methods, the number of calls to each third-party method per caller class, and the
+     * sorted source lines of the calls of each pair.
+     */
+    record CallGraphSweep(Set<Map.Entry<MethodSignature, MethodSignature>> thirdPartyPairs,
+                          CompactCallGraph projectCallGraph,
+                          Map<String, Map<String, Integer>> targetCallCounts,
+                          Map<Map.Entry<MethodSignature, MethodSignature>, int[]> callSiteLines) {
     }
 }
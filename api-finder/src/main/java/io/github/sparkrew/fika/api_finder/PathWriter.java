@@ -1,5 +1,6 @@
 package io.github.sparkrew.fika.api_finder;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import io.github.sparkrew.fika.api_finder.model.AnalysisResult;
@@ -12,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import sootup.core.signatures.MethodSignature;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -30,95 +32,158 @@ public class PathWriter {
         writeFullMethodsFormat(result, fullMethodsPath, sourceRootPath, enableAnalysisLogs);
     }
 
+    /**
+     * Returns true if the full methods report of a previous run exists for the given base path.
+     */
+    public static boolean hasFullMethodsReport(String basePath) {
+        return new File(basePath.replace(".json", "_full_methods.json")).isFile();
+    }
+
+    /**
+     * Merge the analysis result into the reports of a previous run (used by the incremental mode).
+     * The previous records whose direct caller is one of the replaced direct callers are dropped, and the records of
+     * the new result are added. The merged records are sorted the same way as in a full run.
+     *
+     * @param replacedDirectCallers The direct callers (filtered signatures with parameters) whose paths were
+     *                              recomputed.
+     */
+    public static void mergeIntoPreviousReport(AnalysisResult result, String basePath, String sourceRootPath,
+                                               boolean enableAnalysisLogs, Set<String> replacedDirectCallers) {
+        String fullMethodsPath = basePath.replace(".json", "_full_methods.json");
+        String skippedPathsPath = fullMethodsPath.replace("_full_methods.json", "_skipped_paths.json");
+        try {
+            List<FullMethodsPathData> fullMethodsPaths =
+                    readPreviousRecords(fullMethodsPath, "fullMethodsPaths", replacedDirectCallers);
+            List<FullMethodsPathData> skippedPaths =
+                    readPreviousRecords(skippedPathsPath, "skippedPaths", replacedDirectCallers);
+            log.info("Kept {} records of the previous report", fullMethodsPaths.size());
+            buildFullMethodsData(result, sourceRootPath, fullMethodsPaths, skippedPaths);
+            writeFullMethodsData(fullMethodsPaths, skippedPaths, fullMethodsPath, enableAnalysisLogs);
+        } catch (Exception e) {
+            log.error("Failed to merge full methods format into the previous report", e);
+        }
+    }
+
+    private static List<FullMethodsPathData> readPreviousRecords(String path, String key,
+                                                                 Set<String> replacedDirectCallers)
+            throws IOException {
+        File file = new File(path);
+        if (!file.isFile()) {
+            return new ArrayList<>();
+        }
+        Map<String, List<FullMethodsPathData>> previous = new ObjectMapper().readValue(file,
+                new TypeReference<Map<String, List<FullMethodsPathData>>>() {
+                });
+        return previous.getOrDefault(key, List.of()).stream()
+                .filter(data -> !replacedDirectCallers.contains(data.directCaller()))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
     /**
      * Write paths with full method bodies for all methods.
      * Enhanced to add tracking comments along the path.
      */
     private static void writeFullMethodsFormat(AnalysisResult result, String outputPath, String sourceRootPath,
                                                boolean enableAnalysisLogs) {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
         try {
             List<FullMethodsPathData> fullMethodsPaths = new ArrayList<>();
             List<FullMethodsPathData> skippedPaths = new ArrayList<>();
-            for (ThirdPartyPath tp : result.thirdPartyPaths()) {
-                List<String> fullMethods = extractFullMethodBodiesWithComments(tp.path(), sourceRootPath);
-                ClassMemberData classMembers =
-                        SourceCodeExtractor.extractClassMembers(tp.entryPoint(), sourceRootPath);
-                Set<String> importsSet = SourceCodeExtractor.extractRequiredImports(
-                        tp.entryPoint(), tp.path(), sourceRootPath);
-                // Merge imports from class members (constructors, setters) with path imports
-                importsSet.addAll(classMembers.imports());
-                List<String> imports = new ArrayList<>(importsSet);
-                Collections.sort(imports);
-                // This is for the test template generation.  This would be another prompt format if needed.
-                String testTemplate = TestTemplateGenerator.generateTestTemplate(tp);
-                int conditionCount = RecordCounter.countConditionsInPath(tp.path(), sourceRootPath);
-                log.debug("Path to {} has {} conditions",
-                        NameFilter.getFilteredMethodSignatureWithParams(tp.thirdPartyMethod()),
-                        conditionCount);
-                // Use full signatures with parameters to properly distinguish overloaded methods
-                List<String> pathStrings = tp.path().stream()
-                        .map(NameFilter::getFilteredMethodSignatureWithParams)
-                        .collect(Collectors.toList());
-                // Direct caller is the second-to-last method in the path (before the third party method)
-                String directCaller = pathStrings.size() >= 2 ?
-                        pathStrings.get(pathStrings.size() - 2) :
-                        pathStrings.get(0);
-                FullMethodsPathData data = new FullMethodsPathData(
-                        NameFilter.getFilteredMethodSignatureWithParams(tp.entryPoint()),
-                        NameFilter.getFilteredMethodSignatureWithParams(tp.thirdPartyMethod()),
-                        directCaller,
-                        pathStrings,
-                        fullMethods,
-                        classMembers.constructors(),
-                        classMembers.fieldDeclarations(),
-                        classMembers.setters(),
-                        imports,
-                        testTemplate,
-                        conditionCount,
-                        tp.callCount(),
-                        false
-                );
-                // We don't want a record without any source code extracted. This could happen when the source code
-                // could not be retrieved and returned null instead.
-                // We skip all these paths, because we don't want any bias.
-                if (data.methodSources().stream().noneMatch(Objects::isNull))
-                    fullMethodsPaths.add(data);
-                else {
-                    log.debug("Skipping path from {} to {} due to missing source code.",
-                            data.entryPoint(), data.thirdPartyMethod());
-                    skippedPaths.add(data);
-                }
-            }
-            // Sort paths:  primary by path length, secondary by condition count (both ascending)
-            Collections.sort(fullMethodsPaths);
-            log.debug("Sorted {} paths by condition count and path length", fullMethodsPaths.size());
-            if (!fullMethodsPaths.isEmpty()) {
-                log.debug("Simplest path has {} conditions and {} methods",
-                        fullMethodsPaths.get(0).conditionCount(),
-                        fullMethodsPaths.get(0).path().size());
-                log.debug("Most complex path has {} conditions and {} methods",
-                        fullMethodsPaths.get(fullMethodsPaths.size() - 1).conditionCount(),
-                        fullMethodsPaths.get(fullMethodsPaths.size() - 1).path().size());
-            }
-            File outputFile = new File(outputPath);
-            mapper.writeValue(outputFile, Map.of("fullMethodsPaths", fullMethodsPaths));
-            log.info("Successfully wrote {} full methods paths to {}", fullMethodsPaths.size(),
-                    outputFile.getAbsolutePath());
-            // We write skipped paths to a separate file for analysis
-            if (enableAnalysisLogs && !skippedPaths.isEmpty()) {
-                String skippedPathsPath = outputPath.replace("_full_methods.json", "_skipped_paths.json");
-                File skippedFile = new File(skippedPathsPath);
-                mapper.writeValue(skippedFile, Map.of("skippedPaths", skippedPaths));
-                log.info("Successfully wrote {} skipped paths to {}", skippedPaths.size(),
-                        skippedFile.getAbsolutePath());
-            }
+            buildFullMethodsData(result, sourceRootPath, fullMethodsPaths, skippedPaths);
+            writeFullMethodsData(fullMethodsPaths, skippedPaths, outputPath, enableAnalysisLogs);
         } catch (Exception e) {
             log.error("Failed to write full methods format to JSON", e);
         }
     }
 
+    /**
+     * Builds a record with the full method bodies for every path of the result. Records without source code go to
+     * the skipped paths.
+     */
+    private static void buildFullMethodsData(AnalysisResult result, String sourceRootPath,
+                                             List<FullMethodsPathData> fullMethodsPaths,
+                                             List<FullMethodsPathData> skippedPaths) {
+        for (ThirdPartyPath tp : result.thirdPartyPaths()) {
+            List<String> fullMethods = extractFullMethodBodiesWithComments(tp.path(), sourceRootPath);
+            ClassMemberData classMembers =
+                    SourceCodeExtractor.extractClassMembers(tp.entryPoint(), sourceRootPath);
+            Set<String> importsSet = SourceCodeExtractor.extractRequiredImports(
+                    tp.entryPoint(), tp.path(), sourceRootPath);
+            // Merge imports from class members (constructors, setters) with path imports
+            importsSet.addAll(classMembers.imports());
+            List<String> imports = new ArrayList<>(importsSet);
+            Collections.sort(imports);
+            // This is for the test template generation.  This would be another prompt format if needed.
+            String testTemplate = TestTemplateGenerator.generateTestTemplate(tp);
+            int conditionCount = RecordCounter.countConditionsInPath(tp.path(), sourceRootPath);
+            log.debug("Path to {} has {} conditions",
+                    NameFilter.getFilteredMethodSignatureWithParams(tp.thirdPartyMethod()),
+                    conditionCount);
+            // Use full signatures with parameters to properly distinguish overloaded methods
+            List<String> pathStrings = tp.path().stream()
+                    .map(NameFilter::getFilteredMethodSignatureWithParams)
+                    .collect(Collectors.toList());
+            // Direct caller is the second-to-last method in the path (before the third party method)
+            String directCaller = pathStrings.size() >= 2 ?
+                    pathStrings.get(pathStrings.size() - 2) :
+                    pathStrings.get(0);
+            FullMethodsPathData data = new FullMethodsPathData(
+                    NameFilter.getFilteredMethodSignatureWithParams(tp.entryPoint()),
+                    NameFilter.getFilteredMethodSignatureWithParams(tp.thirdPartyMethod()),
+                    directCaller,
+                    pathStrings,
+                    fullMethods,
+                    classMembers.constructors(),
+                    classMembers.fieldDeclarations(),
+                    classMembers.setters(),
+                    imports,
+                    testTemplate,
+                    conditionCount,
+                    tp.callCount(),
+                    false
+            );
+            // We don't want a record without any source code extracted. This could happen when the source code
+            // could not be retrieved and returned null instead.
+            // We skip all these paths, because we don't want any bias.
+            if (data.methodSources().stream().noneMatch(Objects::isNull))
+                fullMethodsPaths.add(data);
+            else {
+                log.debug("Skipping path from {} to {} due to missing source code.",
+                        data.entryPoint(), data.thirdPartyMethod());
+                skippedPaths.add(data);
+            }
+        }
+    }
+
+    private static void writeFullMethodsData(List<FullMethodsPathData> fullMethodsPaths,
+                                             List<FullMethodsPathData> skippedPaths, String outputPath,
+                                             boolean enableAnalysisLogs) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        // Sort paths:  primary by path length, secondary by condition count (both ascending)
+        Collections.sort(fullMethodsPaths);
+        log.debug("Sorted {} paths by condition count and path length", fullMethodsPaths.size());
+        if (!fullMethodsPaths.isEmpty()) {
+            log.debug("Simplest path has {} conditions and {} methods",
+                    fullMethodsPaths.get(0).conditionCount(),
+                    fullMethodsPaths.get(0).path().size());
+            log.debug("Most complex path has {} conditions and {} methods",
+                    fullMethodsPaths.get(fullMethodsPaths.size() - 1).conditionCount(),
+                    fullMethodsPaths.get(fullMethodsPaths.size() - 1).path().size());
+        }
+        File outputFile = new File(outputPath);
+        mapper.writeValue(outputFile, Map.of("fullMethodsPaths", fullMethodsPaths));
+        log.info("Successfully wrote {} full methods paths to {}", fullMethodsPaths.size(),
+                outputFile.getAbsolutePath());
+        // We write skipped paths to a separate file for analysis
+        if (enableAnalysisLogs && !skippedPaths.isEmpty()) {
+            String skippedPathsPath = outputPath.replace("_full_methods.json", "_skipped_paths.json");
+            File skippedFile = new File(skippedPathsPath);
+            mapper.writeValue(skippedFile, Map.of("skippedPaths", skippedPaths));
+            log.info("Successfully wrote {} skipped paths to {}", skippedPaths.size(),
+                    skippedFile.getAbsolutePath());
+        }
+    }
+
     /**
      * Extract full method bodies with path tracking comments.
      * Each method will have a comment indicating which call leads to the next method in the path.
@@ -0,0 +1,61 @@
+package io.github.sparkrew.fika.api_finder;
+
+import sootup.core.inputlocation.AnalysisInputLocation;
+import sootup.core.model.SourceType;
+import sootup.java.bytecode.frontend.inputlocation.JavaClassPathAnalysisInputLocation;
+import sootup.java.core.JavaSootClass;
+import sootup.java.core.views.JavaView;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A view over the project classes and its dependencies. The project classes (a jar or a classes directory) are the
+ * application input, the dependency jars are library inputs. Only the application classes are enumerated by
+ * {@link #getApplicationClasses()}; library classes are loaded one by one when the call graph or the class hierarchy
+ * asks for them, so the startup time and the heap scale with the project rather than with its dependencies.
+ * {@link #getClasses()} still loads every class and should not be used.
+ */
+class ProjectView extends JavaView {
+
+    private final AnalysisInputLocation applicationLocation;
+    private List<JavaSootClass> applicationClasses;
+
+    private ProjectView(AnalysisInputLocation applicationLocation, List<AnalysisInputLocation> inputLocations) {
+        super(inputLocations);
+        this.applicationLocation = applicationLocation;
+    }
+
+    /**
+     * Creates the view for the given project classes and dependency jars.
+     */
+    static ProjectView create(String applicationPath, List<Path> dependencyPaths) {
+        AnalysisInputLocation applicationLocation =
+                new JavaClassPathAnalysisInputLocation(applicationPath, SourceType.Application);
+        List<AnalysisInputLocation> inputLocations = new ArrayList<>();
+        // The application comes first, so its classes win over classes of the same name in a dependency.
+        inputLocations.add(applicationLocation);
+        if (!dependencyPaths.isEmpty()) {
+            String classPath = dependencyPaths.stream()
+                    .map(Path::toString)
+                    .collect(Collectors.joining(File.pathSeparator));
+            inputLocations.add(new JavaClassPathAnalysisInputLocation(classPath, SourceType.Library));
+        }
+        return new ProjectView(applicationLocation, inputLocations);
+    }
+
+    /**
+     * Returns the classes of the application input. The classes are loaded into the view on the first call.
+     */
+    synchronized List<JavaSootClass> getApplicationClasses() {
+        if (applicationClasses == null) {
+            applicationClasses = applicationLocation.getClassSources(this)
+                    .map(this::buildClassFrom)
+                    .toList();
+        }
+        return applicationClasses;
+    }
+}
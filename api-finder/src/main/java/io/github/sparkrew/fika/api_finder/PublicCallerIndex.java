@@ -0,0 +1,172 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sootup.core.signatures.MethodSignature;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed "nearest public callers" of project methods.
+ * For every indexed method, it keeps the shortest paths from the first public methods (entry points) that reach the
+ * method through the reverse call graph. The index is built once for all direct callers of third-party methods, so a
+ * direct caller that calls many third-party methods is searched only once and each (caller, third-party method) pair
+ * becomes a table read.
+ * The index is keyed by method and every entry comes from its own BFS. We do not stitch the paths of a method together
+ * from the paths of its callers, because the BFS keeps one path per reached public method and stitching could pick a
+ * different path than the search from the method itself. That would change the output.
+ */
+public class PublicCallerIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PublicCallerIndex.class);
+    private final CompactCallGraph graph;
+    // Paths by method ID. Each path holds method IDs from the public method to the indexed method.
+    private final int[][][] pathsById;
+
+    private PublicCallerIndex(CompactCallGraph graph, int[][][] pathsById) {
+        this.graph = graph;
+        this.pathsById = pathsById;
+    }
+
+    /**
+     * Builds the index for the given methods.
+     *
+     * @param methods     The project methods to index (usually the direct callers of third-party methods).
+     * @param graph       The call graph without third-party methods.
+     * @param entryPoints The public methods where the backward search stops.
+     * @param threads     Number of worker threads. 1 builds the index serially.
+     */
+    public static PublicCallerIndex build(Collection<MethodSignature> methods, CompactCallGraph graph,
+                                          Set<MethodSignature> entryPoints, int threads)
+            throws InterruptedException, ExecutionException {
+        BitSet entryPointIds = graph.toBitSet(entryPoints);
+        // Public methods are entry points themselves, so there is nothing to search for them.
+        int[] toIndex = methods.stream()
+                .mapToInt(graph::idOf)
+                .filter(id -> id >= 0 && !entryPointIds.get(id))
+                .distinct()
+                .toArray();
+        int[][][] pathsById = new int[graph.methodCount()][][];
+        // Each thread reuses its own scratch arrays, so a search does not allocate graph-sized buffers.
+        ThreadLocal<SearchScratch> scratch = ThreadLocal.withInitial(() -> new SearchScratch(graph.methodCount()));
+        IntStream searches = IntStream.of(toIndex);
+        if (threads <= 1) {
+            searches.forEach(id -> pathsById[id] =
+                    findPathsToFirstPublicCallers(graph, id, entryPointIds, scratch.get()));
+        } else {
+            // Each search only reads the graph and writes its own slot, so they can run independently on a
+            // work-stealing pool.
+            log.info("Indexing public callers of {} methods with {} threads", toIndex.length, threads);
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.submit(() -> searches.parallel().forEach(id -> pathsById[id] =
+                        findPathsToFirstPublicCallers(graph, id, entryPointIds, scratch.get()))).get();
+            } finally {
+                pool.shutdown();
+            }
+        }
+        log.info("Indexed public callers of {} non-public methods", toIndex.length);
+        return new PublicCallerIndex(graph, pathsById);
+    }
+
+    /**
+     * Returns the paths from the first public callers to the given method. Each path starts at a public method and
+     * ends at the given method. Returns an empty list if the method was not indexed or no public method reaches it.
+     */
+    public List<List<MethodSignature>> pathsTo(MethodSignature method) {
+        int id = graph.idOf(method);
+        if (id < 0 || pathsById[id] == null) {
+            return List.of();
+        }
+        List<List<MethodSignature>> paths = new ArrayList<>(pathsById[id].length);
+        for (int[] path : pathsById[id]) {
+            List<MethodSignature> signatures = new ArrayList<>(path.length);
+            for (int step : path) {
+                signatures.add(graph.methodOf(step));
+            }
+            paths.add(signatures);
+        }
+        return paths;
+    }
+
+    /**
+     * Find all shortest paths from the direct caller to public methods (entry points)
+     * by traversing backwards through the call graph using BFS.
+     * Returns the complete paths (in call order: from publicMethod to directCaller).
+     * Stops at the first public method found in each path (no intermediate public methods).
+     * Third-party methods are not part of the graph, so the search only walks project methods.
+     */
+    private static int[][] findPathsToFirstPublicCallers(CompactCallGraph graph, int directCaller,
+                                                         BitSet entryPoints, SearchScratch scratch) {
+        List<int[]> completePaths = new ArrayList<>();
+        // The queue holds every visited method in discovery order. Public methods are visited but not expanded.
+        int[] queue = scratch.queue;
+        int[] parent = scratch.parent;
+        BitSet visited = scratch.visited;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = directCaller;
+        visited.set(directCaller);
+        parent[directCaller] = -1;
+        while (head < tail) {
+            int current = queue[head++];
+            // If this is a public method (entry point), its path was already recorded
+            // and we stop traversing backward from it (we want first public method only)
+            if (entryPoints.get(current)) {
+                continue;
+            }
+            // Get all methods that call the current method
+            for (int i = graph.callersStart(current); i < graph.callersEnd(current); i++) {
+                int caller = graph.callerAt(i);
+                if (visited.get(caller)) {
+                    continue;
+                }
+                visited.set(caller);
+                parent[caller] = current;
+                queue[tail++] = caller;
+                if (entryPoints.get(caller)) {
+                    completePaths.add(pathFrom(caller, parent));
+                }
+            }
+        }
+        // Only reset what this search touched.
+        for (int i = 0; i < tail; i++) {
+            visited.clear(queue[i]);
+        }
+        return completePaths.toArray(new int[0][]);
+    }
+
+    /**
+     * Follows the parent links from the public method down to the start of the search.
+     */
+    private static int[] pathFrom(int publicMethod, int[] parent) {
+        int length = 0;
+        for (int step = publicMethod; step != -1; step = parent[step]) {
+            length++;
+        }
+        int[] path = new int[length];
+        int index = 0;
+        for (int step = publicMethod; step != -1; step = parent[step]) {
+            path[index++] = step;
+        }
+        return path;
+    }
+
+    /**
+     * Per-thread buffers for the BFS, sized to the number of methods in the graph.
+     */
+    private static class SearchScratch {
+        final int[] queue;
+        final int[] parent;
+        final BitSet visited;
+
+        SearchScratch(int methodCount) {
+            queue = new int[methodCount];
+            parent = new int[methodCount];
+            visited = new BitSet(methodCount);
+        }
+    }
+}
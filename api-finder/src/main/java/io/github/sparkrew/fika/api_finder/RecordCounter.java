@@ -20,8 +20,18 @@ import java.util.Map;
 public class RecordCounter {
 
     private static final Logger log = LoggerFactory.getLogger(RecordCounter.class);
-    // Cache for method condition counts to avoid re-parsing
-    private static final Map<String, Integer> conditionCache = new HashMap<>();
+
+    /**
+     * The caches of one {@link AnalysisSession}.
+     */
+    private static class Caches {
+        // Cache for method condition counts to avoid re-parsing
+        private final Map<String, Integer> conditionCache = new HashMap<>();
+    }
+
+    private static Map<String, Integer> conditionCache() {
+        return AnalysisSession.current().state(Caches.class, Caches::new).conditionCache;
+    }
 
     /**
      * Count total conditions across all methods in a path.
@@ -57,14 +67,14 @@ public class RecordCounter {
     private static int countConditionsInMethod(MethodSignature methodSig, String sourceRootPath) {
         String cacheKey = methodSig.toString();
         // Check cache first
-        if (conditionCache.containsKey(cacheKey)) {
-            return conditionCache.get(cacheKey);
+        if (conditionCache().containsKey(cacheKey)) {
+            return conditionCache().get(cacheKey);
         }
         int count = 0;
         try {
             if (sourceRootPath == null) {
                 log.debug("No source root provided, cannot count conditions for {}", cacheKey);
-                conditionCache.put(cacheKey, 0);
+                conditionCache().put(cacheKey, 0);
                 return 0;
             }
             CtModel spoonModel = SourceCodeExtractor.getModel(sourceRootPath);
@@ -74,7 +84,7 @@ public class RecordCounter {
             CtType<?> ctType = SpoonMethodFinder.findTypeCached(spoonModel, className);
             if (ctType == null) {
                 log.debug("Type not found: {}", className);
-                conditionCache.put(cacheKey, 0);
+                conditionCache().put(cacheKey, 0);
                 return 0;
             }
             // Handle special method names from bytecode
@@ -94,7 +104,7 @@ public class RecordCounter {
             log.warn("Error counting conditions for {}: {}", methodSig, e.getMessage());
         }
         // Cache the result
-        conditionCache.put(cacheKey, count);
+        conditionCache().put(cacheKey, count);
         return count;
     }
 
@@ -167,7 +177,7 @@ public class RecordCounter {
      * Useful when processing multiple projects or for testing.
      */
     public static void clearCache() {
-        conditionCache.clear();
+        conditionCache().clear();
         log.debug("Cleared condition cache");
     }
 
@@ -175,6 +185,6 @@ public class RecordCounter {
      * Get cache statistics for monitoring/debugging.
      */
     public static String getCacheStats() {
-        return String.format("Condition cache: %d entries", conditionCache.size());
+        return String.format("Condition cache: %d entries", conditionCache().size());
     }
 }
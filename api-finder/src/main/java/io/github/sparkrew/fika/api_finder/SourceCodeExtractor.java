@@ -25,19 +25,30 @@ import static io.github.sparkrew.fika.api_finder.utils.NameFilter.filterName;
 public class SourceCodeExtractor {
 
     private static final Logger log = LoggerFactory.getLogger(SourceCodeExtractor.class);
-    private static final Map<String, String> methodCache = new HashMap<>();
-    private static final Map<String, CtType<?>> typeCache = new HashMap<>();
-    private static final Map<String, Integer> invocationCountCache = new HashMap<>();
-    protected static String currentSourceRoot;
-    private static CtModel model;
+
+    /**
+     * The Spoon model and the extracted sources of one {@link AnalysisSession}.
+     */
+    private static class Caches {
+        private final Map<String, String> methodCache = new HashMap<>();
+        private final Map<String, CtType<?>> typeCache = new HashMap<>();
+        private final Map<String, Integer> invocationCountCache = new HashMap<>();
+        private String currentSourceRoot;
+        private CtModel model;
+    }
+
+    private static Caches caches() {
+        return AnalysisSession.current().state(Caches.class, Caches::new);
+    }
 
     /**
      * Initialize or retrieve the Spoon model for the given source root.
      * This is cached to avoid re-parsing the entire source tree multiple times.
      */
     private static CtModel getOrCreateModel(String sourceRootPath) {
-        if (model != null && sourceRootPath.equals(currentSourceRoot)) {
-            return model;
+        Caches caches = caches();
+        if (caches.model != null && sourceRootPath.equals(caches.currentSourceRoot)) {
+            return caches.model;
         }
         log.info("Building Spoon model from source root: {}", sourceRootPath);
         try {
@@ -46,16 +57,16 @@ public class SourceCodeExtractor {
             launcher.getEnvironment().setNoClasspath(true);
             launcher.getEnvironment().setCommentEnabled(true);
             launcher.getEnvironment().disableConsistencyChecks();
-            model = launcher.buildModel();
-            currentSourceRoot = sourceRootPath;
-            methodCache.clear();
-            typeCache.clear();
-            log.info("Spoon model built successfully with {} types", model.getAllTypes().size());
-            return model;
+            caches.model = launcher.buildModel();
+            caches.currentSourceRoot = sourceRootPath;
+            caches.methodCache.clear();
+            caches.typeCache.clear();
+            log.info("Spoon model built successfully with {} types", caches.model.getAllTypes().size());
+            return caches.model;
         } catch (Exception e) {
             log.error("Error building Spoon model: {}", e.getMessage(), e);
-            model = null;
-            currentSourceRoot = null;
+            caches.model = null;
+            caches.currentSourceRoot = null;
             throw new RuntimeException("Failed to build Spoon model", e);
         }
     }
@@ -70,6 +81,7 @@ public class SourceCodeExtractor {
      */
     public static String extractMethodFromSource(MethodSignature methodSig, String sourceRootPath,
                                                  MethodSignature nextMethodSig) {
+        Map<String, String> methodCache = caches().methodCache;
         String cacheKey = methodSig.toString() + (nextMethodSig != null ? "|" + nextMethodSig : "");
         if (methodCache.containsKey(cacheKey)) {
             log.trace("Method cache hit for {}", cacheKey);
@@ -311,6 +323,7 @@ public class SourceCodeExtractor {
      */
     public static int countMethodInvocations(MethodSignature callerSig, MethodSignature targetSig,
                                              String sourceRootPath) {
+        Map<String, Integer> invocationCountCache = caches().invocationCountCache;
         String cacheKey = callerSig.toString() + " -> " + targetSig.toString();
         if (invocationCountCache.containsKey(cacheKey)) {
             log.trace("Invocation count cache hit for {}", cacheKey);
@@ -720,7 +733,7 @@ public class SourceCodeExtractor {
         // This handles cases where a method is defined in a parent class
         // but we are tracking the call through a subclass
         try {
-            CtType<?> targetType = findTypeCached(model, sootClassName);
+            CtType<?> targetType = findTypeCached(caches().model, sootClassName);
             if (targetType != null) {
                 return isSubclassOf(targetType, spoonClassName);
             }
@@ -747,7 +760,7 @@ public class SourceCodeExtractor {
             }
             // Recursively check parent classes
             try {
-                CtType<?> superType = findTypeCached(model, superClassName);
+                CtType<?> superType = findTypeCached(caches().model, superClassName);
                 if (isSubclassOf(superType, parentClassName)) {
                     return true;
                 }
@@ -765,7 +778,7 @@ public class SourceCodeExtractor {
             }
             // Recursively check parent interfaces
             try {
-                CtType<?> interfaceType = findTypeCached(model, interfaceName);
+                CtType<?> interfaceType = findTypeCached(caches().model, interfaceName);
                 if (isSubclassOf(interfaceType, parentClassName)) {
                     return true;
                 }
@@ -777,15 +790,16 @@ public class SourceCodeExtractor {
     }
 
     /**
-     * Clear the cached model and method cache.
+     * Clear the cached model and method cache of the current session.
      * Useful for testing or when processing multiple projects.
      */
     public static void clearCaches() {
-        methodCache.clear();
-        typeCache.clear();
-        invocationCountCache.clear();
-        model = null;
-        currentSourceRoot = null;
+        Caches caches = caches();
+        caches.methodCache.clear();
+        caches.typeCache.clear();
+        caches.invocationCountCache.clear();
+        caches.model = null;
+        caches.currentSourceRoot = null;
         SpoonMethodFinder.clearCache();
     }
 
@@ -794,7 +808,7 @@ public class SourceCodeExtractor {
      */
     public static String getCacheStats() {
         return String.format("Method cache: %d entries, Invocation count cache: %d entries, %s",
-                methodCache.size(), invocationCountCache.size(), SpoonMethodFinder.getCacheStats());
+                caches().methodCache.size(), caches().invocationCountCache.size(), SpoonMethodFinder.getCacheStats());
     }
 
     /**
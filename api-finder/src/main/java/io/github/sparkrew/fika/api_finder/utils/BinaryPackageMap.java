@@ -0,0 +1,226 @@
+package io.github.sparkrew.fika.api_finder.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A package map in the binary format written by the preprocessor ({@code -DoutputFormat=binary}).
+ * The file is memory-mapped and looked up in place: loading it reads the header only, and a lookup is a binary search
+ * over a sorted name table that compares the UTF-8 bytes of the names without decoding them.
+ * Besides the packages, the file may hold a class table ({@code -DclassIndex=true}) that maps each class to the
+ * artifacts that contain it, so classes of split packages are attributed to the right artifact. The layout
+ * (big-endian ints) is:
+ * <pre>
+ * int    magic ("FKPM") and format version
+ * int    packageCount, classCount, coordinateCount, referenceCount
+ * int[]  packageNames[packageCount]           offsets of the package names, sorted by their UTF-8 bytes
+ * int[]  packageReferences[packageCount + 1]  start of the coordinates of each package in references
+ * int[]  classNames[classCount]               offsets of the binary class names, sorted by their UTF-8 bytes
+ * int[]  classReferences[classCount + 1]      start of the coordinates of each class in references
+ * int[]  coordinateNames[coordinateCount]     offsets of the interned coordinates ("groupId:artifactId:type:version")
+ * int[]  references[referenceCount]           indices into coordinateNames
+ * byte[] string pool                          each string is an unsigned short length and its UTF-8 bytes
+ * </pre>
+ * The offsets of the names are relative to the start of the string pool. Lookups only use absolute reads, so the map
+ * can be shared by several threads.
+ */
+public class BinaryPackageMap {
+
+    static final int MAGIC = 0x464b504d; // "FKPM"
+    static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 6 * Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    private final NameTable packages;
+    private final NameTable classes;
+    private final int coordinateNamesStart;
+    private final int referencesStart;
+    private final int poolStart;
+
+    private BinaryPackageMap(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary package map");
+        }
+        int version = buffer.getInt(Integer.BYTES);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported package map version: " + version);
+        }
+        int packageCount = buffer.getInt(2 * Integer.BYTES);
+        int classCount = buffer.getInt(3 * Integer.BYTES);
+        int coordinateCount = buffer.getInt(4 * Integer.BYTES);
+        int referenceCount = buffer.getInt(5 * Integer.BYTES);
+        packages = new NameTable(HEADER_SIZE, packageCount);
+        classes = new NameTable(packages.end(), classCount);
+        coordinateNamesStart = classes.end();
+        referencesStart = coordinateNamesStart + coordinateCount * Integer.BYTES;
+        poolStart = referencesStart + referenceCount * Integer.BYTES;
+        if (poolStart > buffer.limit()) {
+            throw new IOException("Truncated binary package map");
+        }
+    }
+
+    /**
+     * Checks whether the file starts with the magic number of the binary format.
+     */
+    public static boolean isBinaryPackageMap(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Read until the magic number is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Memory-maps a binary package map. The mapping stays valid after the file channel is closed.
+     */
+    public static BinaryPackageMap open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new BinaryPackageMap(buffer);
+        }
+    }
+
+    public int size() {
+        return packages.count;
+    }
+
+    /**
+     * Returns whether the file has a class table.
+     */
+    public boolean hasClassIndex() {
+        return classes.count > 0;
+    }
+
+    public boolean containsPackage(String packageName) {
+        return packages.indexOf(packageName) >= 0;
+    }
+
+    /**
+     * Returns the first coordinate ("groupId:artifactId:type:version") of the package, or null if the package is not
+     * in the map.
+     */
+    public String getFirstCoordinate(String packageName) {
+        return packages.firstCoordinate(packages.indexOf(packageName));
+    }
+
+    /**
+     * Returns the coordinates of the artifacts that contain the package, in the order of the file.
+     */
+    public List<String> getCoordinates(String packageName) {
+        return packages.coordinates(packages.indexOf(packageName));
+    }
+
+    /**
+     * Returns the first coordinate of the artifacts that contain the class, or null if the class is not in the class
+     * table.
+     *
+     * @param className The binary name of the class, e.g. "com.example.Outer$Inner".
+     */
+    public String getFirstCoordinateOfClass(String className) {
+        return classes.firstCoordinate(classes.indexOf(className));
+    }
+
+    /**
+     * Returns the coordinates of the artifacts that contain the class, in the order of the file.
+     */
+    public List<String> getCoordinatesOfClass(String className) {
+        return classes.coordinates(classes.indexOf(className));
+    }
+
+    /**
+     * Compares the pool string at the given offset with the key as unsigned bytes, the order of the name tables.
+     */
+    private int compareName(int offset, byte[] key) {
+        int position = poolStart + offset;
+        int length = Short.toUnsignedInt(buffer.getShort(position));
+        position += Short.BYTES;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Byte.compareUnsigned(buffer.get(position + i), key[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private String readString(int offset) {
+        int position = poolStart + offset;
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort(position))];
+        buffer.get(position + Short.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String coordinate(int reference) {
+        int coordinate = buffer.getInt(referencesStart + reference * Integer.BYTES);
+        return readString(buffer.getInt(coordinateNamesStart + coordinate * Integer.BYTES));
+    }
+
+    /**
+     * A sorted name table and the start of the coordinates of each name in the references.
+     */
+    private class NameTable {
+        private final int namesStart;
+        private final int referencesStart;
+        private final int count;
+
+        private NameTable(int start, int count) {
+            this.namesStart = start;
+            this.referencesStart = start + count * Integer.BYTES;
+            this.count = count;
+        }
+
+        private int end() {
+            return referencesStart + (count + 1) * Integer.BYTES;
+        }
+
+        private int indexOf(String name) {
+            byte[] key = name.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int comparison = compareName(buffer.getInt(namesStart + mid * Integer.BYTES), key);
+                if (comparison < 0) {
+                    low = mid + 1;
+                } else if (comparison > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private int start(int index) {
+            return buffer.getInt(referencesStart + index * Integer.BYTES);
+        }
+
+        private String firstCoordinate(int index) {
+            if (index < 0 || start(index) == start(index + 1)) {
+                return null;
+            }
+            return coordinate(start(index));
+        }
+
+        private List<String> coordinates(int index) {
+            List<String> coordinates = new ArrayList<>();
+            if (index >= 0) {
+                for (int reference = start(index); reference < start(index + 1); reference++) {
+                    coordinates.add(coordinate(reference));
+                }
+            }
+            return coordinates;
+        }
+    }
+}
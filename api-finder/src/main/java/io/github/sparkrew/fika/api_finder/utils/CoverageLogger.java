@@ -1,48 +1,145 @@
 package io.github.sparkrew.fika.api_finder.utils;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import io.github.sparkrew.fika.api_finder.AnalysisSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.*;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Writes the coverage verdict of each (caller, third-party method) pair to the coverage log of the session (see
+ * {@link io.github.sparkrew.fika.api_finder.AnalysisOptions#coverageLogPath()}), as JSON Lines: one
+ * {@code {"caller":...,"thirdPartyMethod":...,"covered":...}} object per line.
+ * A session buffers at most {@link #BATCH_SIZE} entries and appends them to the log when the buffer is full, so the
+ * memory does not grow with the number of pairs, and the log is never read back. The log is replaced by each run:
+ * it is truncated when the first session opens it, and sessions that write the same log at the same time share one
+ * writer, so they never drop each other's entries. Each pair is checked once per session, so it is logged once.
+ */
 public class CoverageLogger {
 
-    private static final File coverageFile = new File("coverage.json");
-    private static final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
-    private static final Set<String> loggedPairs = Collections.synchronizedSet(new HashSet<>());
+    // Number of entries a session buffers before they are appended to its log
+    static final int BATCH_SIZE = 1024;
 
-    public static synchronized void logCoverage(String caller, String thirdPartyMethod, boolean isCovered) {
-        try {
-            List<Map<String, Object>> entries = new ArrayList<>();
-            // If file exists, read existing entries
-            if (coverageFile.exists()) {
+    private static final Logger log = LoggerFactory.getLogger(CoverageLogger.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    // The open coverage logs, each shared by the sessions that write it until the last of them is flushed
+    private static final Map<Path, LogFile> openLogs = new HashMap<>();
+
+    private record Entry(String caller, String thirdPartyMethod, boolean covered) {
+    }
+
+    /**
+     * An open coverage log and the number of sessions that write it.
+     */
+    private static class LogFile {
+        private final Path path;
+        private final Writer writer;
+        private int sessions;
+
+        private LogFile(Path path) throws IOException {
+            this.path = path;
+            this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The log of one {@link AnalysisSession} and the entries it has not written yet.
+     */
+    private static class SessionLog {
+        private final List<Entry> batch = new ArrayList<>();
+        private LogFile file;
+        private boolean failed;
+    }
+
+    public static void logCoverage(String caller, String thirdPartyMethod, boolean isCovered) {
+        AnalysisSession session = AnalysisSession.current();
+        SessionLog sessionLog = session.state(SessionLog.class, SessionLog::new);
+        synchronized (sessionLog) {
+            if (sessionLog.failed) {
+                return;
+            }
+            if (sessionLog.file == null) {
+                Path path = Paths.get(session.getOptions().coverageLogPath()).toAbsolutePath().normalize();
                 try {
-                    entries = mapper.readValue(coverageFile, new TypeReference<>() {
-                    });
-                    for (Map<String, Object> entry : entries) {
-                        String callerKey = (String) entry.get("caller");
-                        String methodKey = (String) entry.get("thirdPartyMethod");
-                        loggedPairs.add(callerKey + "->" + methodKey);
-                    }
-                } catch (Exception ignored) {
+                    sessionLog.file = open(path);
+                } catch (IOException e) {
+                    log.error("Failed to open the coverage log {}", path, e);
+                    sessionLog.failed = true;
+                    return;
                 }
             }
-            String pairKey = caller + "->" + thirdPartyMethod;
-            // Add only if not already logged
-            if (loggedPairs.add(pairKey)) {
-                Map<String, Object> entry = new HashMap<>();
-                entry.put("caller", caller);
-                entry.put("thirdPartyMethod", thirdPartyMethod);
-                entry.put("covered", isCovered);
-                entries.add(entry);
+            sessionLog.batch.add(new Entry(caller, thirdPartyMethod, isCovered));
+            if (sessionLog.batch.size() >= BATCH_SIZE) {
+                write(sessionLog);
+            }
+        }
+    }
 
-                mapper.writeValue(coverageFile, entries);
+    /**
+     * Writes the remaining entries of the current session to its coverage log and closes the log of the session.
+     * Nothing is written if no pair was logged.
+     */
+    public static void flush() {
+        SessionLog sessionLog = AnalysisSession.current().state(SessionLog.class, SessionLog::new);
+        synchronized (sessionLog) {
+            if (sessionLog.file == null) {
+                return;
+            }
+            write(sessionLog);
+            release(sessionLog.file);
+            sessionLog.file = null;
+        }
+    }
+
+    private static LogFile open(Path path) throws IOException {
+        synchronized (openLogs) {
+            LogFile file = openLogs.get(path);
+            if (file == null) {
+                file = new LogFile(path);
+                openLogs.put(path, file);
+            }
+            file.sessions++;
+            return file;
+        }
+    }
+
+    private static void release(LogFile file) {
+        synchronized (openLogs) {
+            if (--file.sessions > 0) {
+                return;
+            }
+            openLogs.remove(file.path);
+            try {
+                file.writer.close();
+            } catch (IOException e) {
+                log.error("Failed to close the coverage log {}", file.path, e);
+            }
+        }
+    }
+
+    private static void write(SessionLog sessionLog) {
+        LogFile file = sessionLog.file;
+        synchronized (file) {
+            try {
+                for (Entry entry : sessionLog.batch) {
+                    file.writer.write(mapper.writeValueAsString(entry));
+                    file.writer.write('\n');
+                }
+                file.writer.flush();
+            } catch (IOException e) {
+                log.error("Failed to write the coverage log {}", file.path, e);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        sessionLog.batch.clear();
     }
 }
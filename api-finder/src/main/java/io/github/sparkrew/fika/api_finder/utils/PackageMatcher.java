@@ -1,7 +1,9 @@
 package io.github.sparkrew.fika.api_finder.utils;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.sparkrew.fika.api_finder.AnalysisSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,12 +24,68 @@ public class PackageMatcher {
 
     private static final Logger log = LoggerFactory.getLogger(PackageMatcher.class);
     private static final ObjectMapper objectMapper = new ObjectMapper();
-    private static final Map<String, List<String>> dependencyMap = new HashMap<>();
     private static final List<String> ignoredPrefixes = Arrays.asList(
             "java.", "jdk.", "sun.", "com.sun."
     );
     private static final String DEFAULT_IGNORED_FILE = "ignored_packages.txt";
-    private static boolean loaded = false;
+
+    /**
+     * The dependency map loaded by one {@link AnalysisSession}. A binary package map is looked up in place, a JSON
+     * package map is parsed into the hash map.
+     */
+    private static class DependencyMap {
+        private final Map<String, List<String>> dependencyMap = new HashMap<>();
+        private BinaryPackageMap binaryMap;
+        private boolean loaded = false;
+
+        private boolean isEmpty() {
+            return binaryMap == null ? dependencyMap.isEmpty() : binaryMap.size() == 0;
+        }
+
+        private boolean contains(String packageName) {
+            return binaryMap == null ? dependencyMap.containsKey(packageName) : binaryMap.containsPackage(packageName);
+        }
+
+        private String firstDependency(String packageName) {
+            if (binaryMap != null) {
+                return binaryMap.getFirstCoordinate(packageName);
+            }
+            List<String> dependencies = dependencyMap.get(packageName);
+            return dependencies == null || dependencies.isEmpty() ? null : dependencies.get(0);
+        }
+
+        private String firstDependencyOfClass(String className) {
+            return binaryMap == null ? null : binaryMap.getFirstCoordinateOfClass(className);
+        }
+    }
+
+    private static DependencyMap dependencyMap(Path packageMap) {
+        DependencyMap map = AnalysisSession.current().state(DependencyMap.class, DependencyMap::new);
+        // The map may be looked up from several threads of the session at once
+        synchronized (map) {
+            if (!map.loaded) {
+                loadDependencyMap(map, packageMap);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Uses the given package map for the current session instead of loading a package map file, e.g. when the map
+     * was just built in the same JVM by the Maven plugin. Later lookups of the session ignore their package map path.
+     *
+     * @param packageMap The coordinates ("groupId:artifactId:type:version") of the dependencies of each package.
+     */
+    public static void useDependencyMap(Map<String, ? extends Collection<String>> packageMap) {
+        DependencyMap map = AnalysisSession.current().state(DependencyMap.class, DependencyMap::new);
+        synchronized (map) {
+            map.dependencyMap.clear();
+            packageMap.forEach((packageName, dependencies) ->
+                    map.dependencyMap.put(packageName, new ArrayList<>(dependencies)));
+            map.binaryMap = null;
+            map.loaded = true;
+        }
+    }
 
     /**
      * Returns the Maven coordinates for a given package name.
@@ -39,46 +97,83 @@ public class PackageMatcher {
      * @return The Maven coordinates or null if not found.
      */
     public static String getDependencyName(String packageName, Path packageMap) {
-        if (!loaded) {
-            loadDependencyMap(packageMap);
-        }
+        DependencyMap map = dependencyMap(packageMap);
         if (packageName == null || packageName.isEmpty()) {
             return null;
         }
-        List<String> packageNames = dependencyMap.get(packageName);
-        if (packageNames == null || packageNames.isEmpty()) {
-            return null;
-        }
-        String dependency = packageNames.get(0);
+        String dependency = map.firstDependency(packageName);
         if (dependency != null) {
-            String[] parts = dependency.split(":");
-            if (parts.length >= 4) {
-                return parts[0] + ":" + parts[1] + ":" + parts[3];
-            } else {
-                log.error("Invalid dependency format for package '{}': {}", packageName, dependency);
-                return dependency;
-            }
+            return toDependencyName(packageName, dependency);
         }
         log.error("Package '{}' not found in the dependency map. ", packageName);
         return null;
     }
 
-    private static void loadDependencyMap(Path packageMap) {
+    /**
+     * Returns the Maven coordinates of the dependency that contains the given class.
+     * With the class index of a binary package map, this is the dependency that contains the class itself, which
+     * matters for packages that are split over several dependencies. Otherwise, the package of the class is looked up
+     * as in {@link #getDependencyName(String, Path)}.
+     *
+     * @param className  The binary name of the class, e.g. "com.example.Outer$Inner".
+     * @param packageMap The path to the package map file.
+     * @return The Maven coordinates ("groupId:artifactId:version") or null if not found.
+     */
+    public static String getDependencyNameOfClass(String className, Path packageMap) {
+        DependencyMap map = dependencyMap(packageMap);
+        if (className == null || className.isEmpty()) {
+            return null;
+        }
+        String dependency = map.firstDependencyOfClass(className);
+        if (dependency != null) {
+            return toDependencyName(className, dependency);
+        }
+        int lastDot = className.lastIndexOf('.');
+        return lastDot > 0 ? getDependencyName(className.substring(0, lastDot), packageMap) : null;
+    }
+
+    private static String toDependencyName(String name, String dependency) {
+        String[] parts = dependency.split(":");
+        if (parts.length >= 4) {
+            return parts[0] + ":" + parts[1] + ":" + parts[3];
+        } else {
+            log.error("Invalid dependency format for '{}': {}", name, dependency);
+            return dependency;
+        }
+    }
+
+    /**
+     * Loads the package map of the preprocessor. The binary format is memory-mapped; otherwise the file is read as
+     * JSON. The JSON map of the aggregate goal has the package map under "packages", next to the dependencies of each
+     * module, which are not needed here.
+     */
+    private static void loadDependencyMap(DependencyMap map, Path packageMap) {
         try {
             if (packageMap == null || !Files.exists(packageMap)) {
                 log.warn("Package map file does not exist: {}", packageMap);
                 return;
             }
-            try (InputStream inputStream = Files.newInputStream(packageMap)) {
-                Map<String, List<String>> loadedMap = objectMapper.readValue(inputStream, new TypeReference<>() {
-                });
-                dependencyMap.putAll(loadedMap);
-                log.info("Successfully loaded package dependency map from: {}", packageMap);
+            if (BinaryPackageMap.isBinaryPackageMap(packageMap)) {
+                map.binaryMap = BinaryPackageMap.open(packageMap);
+                log.info("Memory-mapped binary package dependency map from: {}{}", packageMap,
+                        map.binaryMap.hasClassIndex() ? " (with class index)" : "");
+            } else {
+                try (InputStream inputStream = Files.newInputStream(packageMap)) {
+                    JsonNode root = objectMapper.readTree(inputStream);
+                    JsonNode packages = root.get("packages");
+                    if (packages != null && packages.isObject()) {
+                        root = packages;
+                    }
+                    Map<String, List<String>> loadedMap = objectMapper.convertValue(root, new TypeReference<>() {
+                    });
+                    map.dependencyMap.putAll(loadedMap);
+                    log.info("Successfully loaded package dependency map from: {}", packageMap);
+                }
             }
         } catch (IOException e) {
             log.error("Error reading package-dependency-map from file: {}", packageMap, e);
         }
-        loaded = true;
+        map.loaded = true;
     }
 
     /**
@@ -122,14 +217,12 @@ public class PackageMatcher {
      * @return true if the package name exists in the dependency map, false otherwise.
      */
     public static boolean containsPackage(String packageName, Path packageMap) {
-        if (!loaded) {
-            loadDependencyMap(packageMap);
-        }
-        if (!loaded || dependencyMap.isEmpty()) {
+        DependencyMap map = dependencyMap(packageMap);
+        if (!map.loaded || map.isEmpty()) {
             log.warn("Dependency map not loaded or empty when checking for package: {}", packageName);
             return false;
         }
-        return dependencyMap.containsKey(packageName);
+        return map.contains(packageName);
     }
 
 }
@@ -1,5 +1,6 @@
 package io.github.sparkrew.fika.api_finder.utils;
 
+import io.github.sparkrew.fika.api_finder.AnalysisSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sootup.core.signatures.MethodSignature;
@@ -21,21 +22,31 @@ import static io.github.sparkrew.fika.api_finder.utils.NameFilter.filterName;
 public class SpoonMethodFinder {
 
     private static final Logger log = LoggerFactory.getLogger(SpoonMethodFinder.class);
-    // Type cache:  maps class name to CtType for faster lookups
-    private static final Map<String, CtType<?>> typeCache = new HashMap<>();
+
+    /**
+     * The caches of one {@link AnalysisSession}.
+     */
+    private static class Caches {
+        // Type cache:  maps class name to CtType for faster lookups
+        private final Map<String, CtType<?>> typeCache = new HashMap<>();
+    }
+
+    private static Map<String, CtType<?>> typeCache() {
+        return AnalysisSession.current().state(Caches.class, Caches::new).typeCache;
+    }
 
     /**
      * Find a type with caching to speed up repeated lookups.
      */
     public static CtType<?> findTypeCached(CtModel spoonModel, String fullyQualifiedName) {
         // Check cache first
-        if (typeCache.containsKey(fullyQualifiedName)) {
-            return typeCache.get(fullyQualifiedName);
+        if (typeCache().containsKey(fullyQualifiedName)) {
+            return typeCache().get(fullyQualifiedName);
         }
         // Not in cache, do the lookup
         CtType<?> type = findType(spoonModel, fullyQualifiedName);
         // Cache the result (even if null)
-        typeCache.put(fullyQualifiedName, type);
+        typeCache().put(fullyQualifiedName, type);
         return type;
     }
 
@@ -204,7 +215,7 @@ public class SpoonMethodFinder {
      * Useful for testing or when processing multiple projects.
      */
     public static void clearCache() {
-        typeCache.clear();
+        typeCache().clear();
         log.debug("Cleared type cache");
     }
 
@@ -212,6 +223,6 @@ public class SpoonMethodFinder {
      * Get cache statistics for monitoring/debugging.
      */
     public static String getCacheStats() {
-        return String.format("Type cache: %d entries", typeCache.size());
+        return String.format("Type cache: %d entries", typeCache().size());
     }
 }
@@ -0,0 +1,90 @@
+package io.github.sparkrew.fika.api_finder.utils;
+
+import sootup.core.signatures.MethodSignature;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Decides whether a method is a third-party method: its package is not ignored (JDK, test libraries, the project
+ * itself, ...) and it belongs to a dependency in the package map.
+ * The verdict only depends on the package of the declaring class, so it is computed once per package and then looked
+ * up in a concurrent map. The ignored prefixes are compiled into a character trie, so checking a new package walks
+ * its name once instead of testing every prefix. The classifier is thread-safe.
+ */
+public class ThirdPartyClassifier implements Predicate<MethodSignature> {
+
+    private final PrefixTrie ignoredPrefixes;
+    private final Path packageMapPath;
+    private final Map<String, Boolean> thirdPartyByPackage = new ConcurrentHashMap<>();
+
+    /**
+     * @param ignoredPrefixes The package prefixes that are never third-party (see
+     *                        {@link PackageMatcher#loadIgnoredPrefixes(String)}).
+     * @param packageMapPath  The path to the package map file.
+     */
+    public ThirdPartyClassifier(Set<String> ignoredPrefixes, Path packageMapPath) {
+        this.ignoredPrefixes = new PrefixTrie(ignoredPrefixes);
+        this.packageMapPath = packageMapPath;
+    }
+
+    @Override
+    public boolean test(MethodSignature method) {
+        return isThirdPartyPackage(method.getDeclClassType().getPackageName().getName());
+    }
+
+    /**
+     * Checks whether the classes of the given package are third-party classes.
+     */
+    public boolean isThirdPartyPackage(String packageName) {
+        Boolean thirdParty = thirdPartyByPackage.get(packageName);
+        if (thirdParty == null) {
+            thirdParty = !ignoredPrefixes.matchesPrefixOf(packageName)
+                    && PackageMatcher.containsPackage(packageName, packageMapPath);
+            thirdPartyByPackage.put(packageName, thirdParty);
+        }
+        return thirdParty;
+    }
+
+    /**
+     * A set of prefixes stored as a character trie. A name matches if one of the prefixes is a prefix of the name,
+     * the same as testing {@code name.startsWith(prefix)} for every prefix.
+     */
+    static class PrefixTrie {
+
+        private final Node root = new Node();
+
+        PrefixTrie(Set<String> prefixes) {
+            for (String prefix : prefixes) {
+                Node node = root;
+                for (int i = 0; i < prefix.length(); i++) {
+                    node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node());
+                }
+                node.terminal = true;
+            }
+        }
+
+        boolean matchesPrefixOf(String name) {
+            Node node = root;
+            for (int i = 0; !node.terminal; i++) {
+                if (i == name.length()) {
+                    return false;
+                }
+                node = node.children.get(name.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static class Node {
+            private final Map<Character, Node> children = new HashMap<>();
+            private boolean terminal;
+        }
+    }
+}
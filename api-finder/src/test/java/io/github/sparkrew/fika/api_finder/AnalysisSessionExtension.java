@@ -0,0 +1,54 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+
+import java.lang.reflect.Method;
+
+/**
+ * Runs each test, with its {@code @BeforeEach} and {@code @AfterEach} methods, in a fresh {@link AnalysisSession}
+ * without options, for tests that call the static helpers on their own.
+ */
+public class AnalysisSessionExtension implements InvocationInterceptor {
+
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(AnalysisSessionExtension.class);
+
+    @Override
+    public void interceptBeforeEachMethod(Invocation<Void> invocation,
+                                          ReflectiveInvocationContext<Method> invocationContext,
+                                          ExtensionContext extensionContext) throws Throwable {
+        proceedInSession(invocation, extensionContext);
+    }
+
+    @Override
+    public void interceptTestMethod(Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext,
+                                    ExtensionContext extensionContext) throws Throwable {
+        proceedInSession(invocation, extensionContext);
+    }
+
+    @Override
+    public void interceptAfterEachMethod(Invocation<Void> invocation,
+                                         ReflectiveInvocationContext<Method> invocationContext,
+                                         ExtensionContext extensionContext) throws Throwable {
+        proceedInSession(invocation, extensionContext);
+    }
+
+    private static void proceedInSession(Invocation<Void> invocation, ExtensionContext extensionContext)
+            throws Throwable {
+        AnalysisSession session = extensionContext.getStore(NAMESPACE)
+                .getOrComputeIfAbsent(AnalysisSession.class, k -> new AnalysisSession(null), AnalysisSession.class);
+        Throwable[] failure = new Throwable[1];
+        session.run(() -> {
+            try {
+                invocation.proceed();
+            } catch (Throwable t) {
+                failure[0] = t;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AnalysisSession.
+ */
+class AnalysisSessionTest {
+
+    private static class Counter {
+        private int value;
+    }
+
+    private AnalysisOptions createOptions(String packageName) {
+        return new AnalysisOptions("app.jar", List.of(), "report.json", packageName, null, null, List.of(), List.of(),
+                false, false, 1, CallGraphType.CHA, true, null, false);
+    }
+
+    @Test
+    void testState_IsSeparatePerSession() {
+        AnalysisSession first = new AnalysisSession(createOptions("com.example"));
+        AnalysisSession second = new AnalysisSession(createOptions("com.example"));
+        first.run(() -> AnalysisSession.current().state(Counter.class, Counter::new).value++);
+        first.run(() -> AnalysisSession.current().state(Counter.class, Counter::new).value++);
+        second.run(() -> AnalysisSession.current().state(Counter.class, Counter::new).value++);
+        assertEquals(2, first.state(Counter.class, Counter::new).value);
+        assertEquals(1, second.state(Counter.class, Counter::new).value);
+    }
+
+    @Test
+    void testRun_RestoresThePreviousSession() {
+        AnalysisSession outer = new AnalysisSession(createOptions("com.outer"));
+        AnalysisSession inner = new AnalysisSession(createOptions("com.inner"));
+        outer.run(() -> {
+            assertSame(outer, AnalysisSession.current());
+            inner.run(() -> assertSame(inner, AnalysisSession.current()));
+            assertSame(outer, AnalysisSession.current());
+        });
+        assertThrows(IllegalStateException.class, AnalysisSession::current);
+    }
+
+    @Test
+    void testCurrent_FailsWithoutABoundSession() {
+        assertThrows(IllegalStateException.class, AnalysisSession::current);
+        new AnalysisSession(null).run(() ->
+                assertThrows(IllegalStateException.class, () -> AnalysisSession.current().getOptions()));
+    }
+
+    @Test
+    void testCoverageLogPath_IsNextToTheReport() {
+        AnalysisOptions options = new AnalysisOptions("app.jar", List.of(), "out/report.json", "com.example", null,
+                null, List.of(), List.of(), false, false, 1, CallGraphType.CHA, true, null, false);
+        assertEquals("out/report_coverage.json", options.coverageLogPath());
+        assertEquals("report_coverage.json", createOptions("com.example").coverageLogPath());
+        assertEquals("out/report_all_third_party_calls.json", options.allCallPairsPath());
+    }
+
+    @Test
+    void testBind_BindsTheSessionOnOtherThreads() throws Exception {
+        AnalysisSession session = new AnalysisSession(createOptions("com.example"));
+        AtomicReference<AnalysisSession> seen = new AtomicReference<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> future = executor.submit(session.bind(() -> seen.set(AnalysisSession.current())));
+            future.get();
+            assertSame(session, seen.get());
+            ExecutionException unbound = assertThrows(ExecutionException.class,
+                    () -> executor.submit(AnalysisSession::current).get());
+            assertInstanceOf(IllegalStateException.class, unbound.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testGetIgnoredPrefixes_ContainsTheProjectPackage() {
+        AnalysisSession session = new AnalysisSession(createOptions("com.example"));
+        assertTrue(session.getIgnoredPrefixes().contains("com.example."));
+        assertSame(session.getIgnoredPrefixes(), session.getIgnoredPrefixes());
+    }
+}
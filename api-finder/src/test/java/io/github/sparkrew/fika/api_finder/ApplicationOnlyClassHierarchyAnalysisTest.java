@@ -0,0 +1,102 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sootup.callgraph.CallGraph;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.core.JavaIdentifierFactory;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ApplicationOnlyClassHierarchyAnalysis.
+ */
+class ApplicationOnlyClassHierarchyAnalysisTest {
+
+    static final Predicate<MethodSignature> IS_THIRD_PARTY =
+            method -> method.getDeclClassType().getPackageName().getName().startsWith("org.lib");
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Compiles the given sources (keyed by the binary class name) into the output directory.
+     */
+    static Path compile(Path outputDirectory, Map<String, String> sources) throws IOException {
+        Path sourceDirectory = Files.createTempDirectory(outputDirectory.getParent(), "sources");
+        List<String> arguments = new ArrayList<>(List.of("-d", outputDirectory.toString()));
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            Path sourceFile = sourceDirectory.resolve(source.getKey().replace('.', '/') + ".java");
+            Files.createDirectories(sourceFile.getParent());
+            Files.writeString(sourceFile, source.getValue());
+            arguments.add(sourceFile.toString());
+        }
+        Files.createDirectories(outputDirectory);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+        return outputDirectory;
+    }
+
+    static MethodSignature staticMethod(String className, String methodName) {
+        return JavaIdentifierFactory.getInstance().getMethodSignature(className, methodName, "void", List.of());
+    }
+
+    /**
+     * Compiles com.example.App, which calls a private helper and the third-party org.lib.Library, whose body calls
+     * org.lib.Helper. Both are compiled into one directory, like a jar with dependencies, so the library classes are
+     * application classes of the view.
+     */
+    private ProjectView createView() throws IOException {
+        Path classes = compile(tempDir.resolve("classes"), Map.of(
+                "org.lib.Library", """
+                        package org.lib;
+                        public class Library {
+                            public static void call() { Helper.deep(); }
+                        }
+                        """,
+                "org.lib.Helper", """
+                        package org.lib;
+                        class Helper {
+                            static void deep() { }
+                        }
+                        """,
+                "com.example.App", """
+                        package com.example;
+                        public class App {
+                            public static void run() { helper(); org.lib.Library.call(); }
+                            private static void helper() { }
+                        }
+                        """));
+        return ProjectView.create(classes.toString(), List.of());
+    }
+
+    @Test
+    void testInitialize_KeepsCallsIntoThirdPartyMethodsWithoutTheirBodies() throws IOException {
+        MethodSignature run = staticMethod("com.example.App", "run");
+        MethodSignature helper = staticMethod("com.example.App", "helper");
+        MethodSignature call = staticMethod("org.lib.Library", "call");
+        MethodSignature deep = staticMethod("org.lib.Helper", "deep");
+
+        CallGraph cg = CallGraphType.CHA.create(createView(), true, IS_THIRD_PARTY).initialize(List.of(run));
+        assertTrue(cg.callTargetsFrom(run).contains(helper));
+        // The edge into the library is kept, but the library method is never expanded
+        assertTrue(cg.callTargetsFrom(run).contains(call));
+        assertTrue(cg.containsMethod(call));
+        assertTrue(cg.callTargetsFrom(call).isEmpty());
+        assertFalse(cg.containsMethod(deep));
+
+        // The whole-jar graph does expand the library
+        CallGraph fullCg = CallGraphType.CHA.create(createView(), false, IS_THIRD_PARTY).initialize(List.of(run));
+        assertTrue(fullCg.callTargetsFrom(call).contains(deep));
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.core.JavaIdentifierFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BytecodeInvokeScanner.
+ */
+class BytecodeInvokeScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MethodSignature createMethodSignature(String className, String methodName, String returnType,
+                                                  List<String> parameterTypes) {
+        return JavaIdentifierFactory.getInstance().getMethodSignature(className, methodName, returnType,
+                parameterTypes);
+    }
+
+    /**
+     * Writes com.example.App with a run method that calls a third-party method, a JDK method, and a lambda factory,
+     * and a private helper without calls.
+     */
+    private Path writeClasses() throws IOException {
+        Path classes = tempDir.resolve("classes");
+        writeClass(classes, "com/example/App");
+        Files.createDirectories(classes.resolve("org/lib"));
+        Files.write(classes.resolve("org/lib/Other.class"), new byte[]{1, 2, 3});
+        return classes;
+    }
+
+    private void writeClass(Path classes, String internalName) throws IOException {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, internalName, null, "java/lang/Object", null);
+        MethodVisitor run = writer.visitMethod(Opcodes.ACC_PUBLIC, "run", "([Ljava/lang/String;)V", null, null);
+        run.visitCode();
+        run.visitLdcInsn("x");
+        run.visitMethodInsn(Opcodes.INVOKESTATIC, "org/lib/Util", "parse", "(Ljava/lang/String;)[I", false);
+        run.visitInsn(Opcodes.POP);
+        run.visitLdcInsn("y");
+        run.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+        run.visitInsn(Opcodes.POP);
+        run.visitInvokeDynamicInsn("get", "()Ljava/util/function/Supplier;", new Handle(Opcodes.H_INVOKESTATIC,
+                "java/lang/invoke/LambdaMetafactory", "metafactory",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+                        + "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)"
+                        + "Ljava/lang/invoke/CallSite;", false));
+        run.visitInsn(Opcodes.POP);
+        run.visitInsn(Opcodes.RETURN);
+        run.visitMaxs(0, 0);
+        run.visitEnd();
+        MethodVisitor helper = writer.visitMethod(Opcodes.ACC_PRIVATE, "helper", "()V", null, null);
+        helper.visitCode();
+        helper.visitInsn(Opcodes.RETURN);
+        helper.visitMaxs(0, 0);
+        helper.visitEnd();
+        writer.visitEnd();
+        Path classFile = classes.resolve(internalName + ".class");
+        Files.createDirectories(classFile.getParent());
+        Files.write(classFile, writer.toByteArray());
+    }
+
+    private AnalysisSession createSession(Path classes, int threads) {
+        return new AnalysisSession(new AnalysisOptions(classes.toString(), List.of(), "report.json",
+                "com.example", null, null, List.of(), List.of(), false, false, threads, CallGraphType.CHA, true, null,
+                false));
+    }
+
+    @Test
+    void testScan_FindsThirdPartyCallsInBytecode() throws Exception {
+        Path classes = writeClasses();
+        BytecodeInvokeScanner.ScanResult result = BytecodeInvokeScanner.scan(createSession(classes, 1),
+                method -> method.getDeclClassType().getPackageName().getName().startsWith("org.lib"));
+        MethodSignature run = createMethodSignature("com.example.App", "run", "void",
+                List.of("java.lang.String[]"));
+        MethodSignature parse = createMethodSignature("org.lib.Util", "parse", "int[]",
+                List.of("java.lang.String"));
+        assertEquals(Set.of(Map.entry(run, parse)), result.callPairs());
+        assertEquals(Map.of("org.lib", 1), result.thirdPartyPackageCount());
+        assertEquals(2, result.totalMethods());
+        assertEquals(1, result.methodsWithThirdPartyCalls());
+    }
+
+    @Test
+    void testScan_ParallelScanBindsTheSession() throws Exception {
+        Path classes = writeClasses();
+        AnalysisSession session = createSession(classes, 4);
+        BytecodeInvokeScanner.ScanResult result = BytecodeInvokeScanner.scan(session, method -> {
+            assertSame(session, AnalysisSession.current());
+            return method.getDeclClassType().getPackageName().getName().startsWith("org.lib");
+        });
+        assertEquals(1, result.callPairs().size());
+    }
+
+    @Test
+    void testScan_ParallelScanMergesTheSameResultAsSerialScan() throws Exception {
+        Path classes = tempDir.resolve("classes");
+        for (int i = 0; i < 50; i++) {
+            writeClass(classes, "com/example/App" + i);
+        }
+        Predicate<MethodSignature> isThirdParty =
+                method -> method.getDeclClassType().getPackageName().getName().startsWith("org.lib");
+        BytecodeInvokeScanner.ScanResult serial = BytecodeInvokeScanner.scan(createSession(classes, 1), isThirdParty);
+        BytecodeInvokeScanner.ScanResult parallel =
+                BytecodeInvokeScanner.scan(createSession(classes, 4), isThirdParty);
+        assertEquals(50, serial.callPairs().size());
+        assertEquals(serial, parallel);
+        assertEquals(Map.of("org.lib", 50), parallel.thirdPartyPackageCount());
+        assertEquals(100, parallel.totalMethods());
+    }
+
+    @Test
+    void testReadProjectClassFiles_OnlyReadsTheProjectPackage() throws IOException {
+        Path classes = writeClasses();
+        assertEquals(1, BytecodeInvokeScanner.readProjectClassFiles(classes.toString(), "com.example").size());
+    }
+}
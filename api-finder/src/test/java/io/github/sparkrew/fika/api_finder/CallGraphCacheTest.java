@@ -0,0 +1,107 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.core.JavaIdentifierFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CallGraphCache.
+ */
+class CallGraphCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MethodSignature publicRun;
+    private MethodSignature privateHelper;
+    private MethodSignature thirdPartyParse;
+    private MethodSignature thirdPartyWrite;
+    private CallGraphCache.CallGraphData data;
+
+    @BeforeEach
+    void setUp() {
+        JavaIdentifierFactory factory = JavaIdentifierFactory.getInstance();
+        publicRun = factory.getMethodSignature("com.example.A", "run", "void", List.of("java.lang.String[]"));
+        privateHelper = factory.getMethodSignature("com.example.A$Inner", "helper", "int", List.of("int", "long"));
+        thirdPartyParse = factory.getMethodSignature("org.lib.Parser", "parse", "org.lib.Node",
+                List.of("java.lang.String"));
+        thirdPartyWrite = factory.getMethodSignature("org.lib.Writer", "write", "void", List.of());
+        CompactCallGraph.Builder graphBuilder = new CompactCallGraph.Builder();
+        graphBuilder.addCall(publicRun, privateHelper);
+        Set<Map.Entry<MethodSignature, MethodSignature>> pairs = new LinkedHashSet<>();
+        pairs.add(Map.entry(privateHelper, thirdPartyParse));
+        pairs.add(Map.entry(publicRun, thirdPartyWrite));
+        data = new CallGraphCache.CallGraphData(Set.of(publicRun), graphBuilder.build(), pairs,
+                Map.of("com.example.A$Inner", Map.of("org.lib.Parser.parse(java.lang.String)", 2)),
+                Map.of(Map.entry(privateHelper, thirdPartyParse), new int[]{12, 15}));
+    }
+
+    private CallGraphCache.CallGraphData roundTrip(CallGraphCache.CallGraphData original) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            CallGraphCache.write(out, original);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return CallGraphCache.read(in);
+        }
+    }
+
+    @Test
+    void testRoundTrip_KeepsSignaturesAndPairOrder() throws IOException {
+        CallGraphCache.CallGraphData loaded = roundTrip(data);
+        assertEquals(data.entryPoints(), loaded.entryPoints());
+        assertEquals(new ArrayList<>(data.thirdPartyPairs()), new ArrayList<>(loaded.thirdPartyPairs()));
+        assertEquals(data.targetCallCounts(), loaded.targetCallCounts());
+        assertArrayEquals(new int[]{12, 15}, loaded.callSiteLines().get(Map.entry(privateHelper, thirdPartyParse)));
+        assertNull(loaded.callSiteLines().get(Map.entry(publicRun, thirdPartyWrite)));
+    }
+
+    @Test
+    void testRoundTrip_KeepsGraphIds() throws IOException {
+        CompactCallGraph graph = roundTrip(data).projectCallGraph();
+        assertEquals(data.projectCallGraph().methodCount(), graph.methodCount());
+        assertEquals(data.projectCallGraph().idOf(privateHelper), graph.idOf(privateHelper));
+        int runId = graph.idOf(publicRun);
+        assertEquals(1, graph.calleesEnd(runId) - graph.calleesStart(runId));
+        assertEquals(privateHelper, graph.methodOf(graph.calleeAt(graph.calleesStart(runId))));
+    }
+
+    @Test
+    void testStoreAndLoad_UsesSameFileForSameInputs() throws IOException {
+        Path jar = Files.writeString(tempDir.resolve("app.jar"), "jar content");
+        Path packageMap = Files.writeString(tempDir.resolve("map.json"), "{}");
+        Path cacheDir = tempDir.resolve("cache");
+        CallGraphCache cache = CallGraphCache.forInputs(cacheDir, jar.toString(), List.of(), packageMap,
+                "com.example", Set.of("java."), CallGraphType.CHA, true);
+        assertNull(cache.load());
+        cache.store(data);
+        CallGraphCache sameInputs = CallGraphCache.forInputs(cacheDir, jar.toString(), List.of(), packageMap,
+                "com.example", Set.of("java."), CallGraphType.CHA, true);
+        assertNotNull(sameInputs.load());
+    }
+
+    @Test
+    void testForInputs_ChangedJarGetsNewFile() throws IOException {
+        Path jar = Files.writeString(tempDir.resolve("app.jar"), "jar content");
+        Path packageMap = Files.writeString(tempDir.resolve("map.json"), "{}");
+        Path cacheDir = tempDir.resolve("cache");
+        CallGraphCache before = CallGraphCache.forInputs(cacheDir, jar.toString(), List.of(), packageMap,
+                "com.example", Set.of(), CallGraphType.CHA, true);
+        Files.writeString(jar, "changed jar content");
+        CallGraphCache after = CallGraphCache.forInputs(cacheDir, jar.toString(), List.of(), packageMap,
+                "com.example", Set.of(), CallGraphType.CHA, true);
+        CallGraphCache otherAlgorithm = CallGraphCache.forInputs(cacheDir, jar.toString(), List.of(), packageMap,
+                "com.example", Set.of(), CallGraphType.RTA, true);
+        assertNotEquals(before.getCacheFile(), after.getCacheFile());
+        assertNotEquals(after.getCacheFile(), otherAlgorithm.getCacheFile());
+    }
+}
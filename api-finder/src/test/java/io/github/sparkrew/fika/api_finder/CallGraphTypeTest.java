@@ -0,0 +1,80 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sootup.callgraph.CallGraph;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.core.JavaIdentifierFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CallGraphType.
+ */
+class CallGraphTypeTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MethodSignature areaOf(String className) {
+        return JavaIdentifierFactory.getInstance().getMethodSignature(className, "area", "void", List.of());
+    }
+
+    /**
+     * Compiles com.example.App, which calls Shape.area() on a Circle. Square also implements Shape, but it is never
+     * instantiated.
+     */
+    private ProjectView createView() throws IOException {
+        Path classes = ApplicationOnlyClassHierarchyAnalysisTest.compile(tempDir.resolve("classes"), Map.of(
+                "com.example.Shape", """
+                        package com.example;
+                        public interface Shape {
+                            void area();
+                        }
+                        """,
+                "com.example.Circle", """
+                        package com.example;
+                        public class Circle implements Shape {
+                            public void area() { }
+                        }
+                        """,
+                "com.example.Square", """
+                        package com.example;
+                        public class Square implements Shape {
+                            public void area() { }
+                        }
+                        """,
+                "com.example.App", """
+                        package com.example;
+                        public class App {
+                            public static void run() {
+                                Shape shape = new Circle();
+                                shape.area();
+                            }
+                        }
+                        """));
+        return ProjectView.create(classes.toString(), List.of());
+    }
+
+    @Test
+    void testCreate_RtaPrunesCallsToTypesThatAreNeverInstantiated() throws IOException {
+        MethodSignature run = ApplicationOnlyClassHierarchyAnalysisTest.staticMethod("com.example.App", "run");
+        for (boolean applicationOnly : new boolean[]{true, false}) {
+            CallGraph cha = CallGraphType.CHA.create(createView(), applicationOnly,
+                    ApplicationOnlyClassHierarchyAnalysisTest.IS_THIRD_PARTY).initialize(List.of(run));
+            assertTrue(cha.containsMethod(areaOf("com.example.Circle")));
+            assertTrue(cha.containsMethod(areaOf("com.example.Square")));
+
+            CallGraph rta = CallGraphType.RTA.create(createView(), applicationOnly,
+                    ApplicationOnlyClassHierarchyAnalysisTest.IS_THIRD_PARTY).initialize(List.of(run));
+            assertTrue(rta.containsMethod(areaOf("com.example.Circle")));
+            assertFalse(rta.containsMethod(areaOf("com.example.Square")));
+            assertTrue(rta.getMethodSignatures().size() < cha.getMethodSignatures().size());
+        }
+    }
+}
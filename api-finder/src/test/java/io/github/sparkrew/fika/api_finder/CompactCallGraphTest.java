@@ -0,0 +1,86 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.junit.jupiter.api.Test;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.core.JavaIdentifierFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CompactCallGraph.
+ */
+class CompactCallGraphTest {
+
+    private final MethodSignature caller = createMethodSignature("com.example.A", "caller");
+    private final MethodSignature calleeOne = createMethodSignature("com.example.B", "one");
+    private final MethodSignature calleeTwo = createMethodSignature("com.example.C", "two");
+
+    private MethodSignature createMethodSignature(String className, String methodName) {
+        return JavaIdentifierFactory.getInstance().getMethodSignature(className, methodName, "void", List.of());
+    }
+
+    private List<MethodSignature> calleesOf(CompactCallGraph graph, MethodSignature method) {
+        List<MethodSignature> result = new ArrayList<>();
+        int id = graph.idOf(method);
+        for (int i = graph.calleesStart(id); i < graph.calleesEnd(id); i++) {
+            result.add(graph.methodOf(graph.calleeAt(i)));
+        }
+        return result;
+    }
+
+    private List<MethodSignature> callersOf(CompactCallGraph graph, MethodSignature method) {
+        List<MethodSignature> result = new ArrayList<>();
+        int id = graph.idOf(method);
+        for (int i = graph.callersStart(id); i < graph.callersEnd(id); i++) {
+            result.add(graph.methodOf(graph.callerAt(i)));
+        }
+        return result;
+    }
+
+    @Test
+    void testBuild_ForwardAndReverseEdges() {
+        CompactCallGraph.Builder builder = new CompactCallGraph.Builder();
+        builder.addCall(caller, calleeTwo);
+        builder.addCall(caller, calleeOne);
+        builder.addCall(calleeOne, calleeTwo);
+        CompactCallGraph graph = builder.build();
+        assertEquals(3, graph.methodCount());
+        assertEquals(3, graph.edgeCount());
+        // Rows are sorted by ID, and IDs are given in the order the methods were added
+        assertEquals(List.of(calleeTwo, calleeOne), calleesOf(graph, caller));
+        assertEquals(List.of(caller, calleeOne), callersOf(graph, calleeTwo));
+        assertTrue(callersOf(graph, caller).isEmpty());
+    }
+
+    @Test
+    void testBuild_DuplicateCallsBecomeOneEdge() {
+        CompactCallGraph.Builder builder = new CompactCallGraph.Builder();
+        builder.addCall(caller, calleeOne);
+        builder.addCall(caller, calleeOne);
+        CompactCallGraph graph = builder.build();
+        assertEquals(1, graph.edgeCount());
+        assertEquals(List.of(calleeOne), calleesOf(graph, caller));
+    }
+
+    @Test
+    void testBuild_ManyEdgesGrowBuffers() {
+        CompactCallGraph.Builder builder = new CompactCallGraph.Builder();
+        for (int i = 0; i < 3000; i++) {
+            builder.addCall(caller, createMethodSignature("com.example.Gen", "m" + i));
+        }
+        CompactCallGraph graph = builder.build();
+        assertEquals(3001, graph.methodCount());
+        assertEquals(3000, graph.edgeCount());
+    }
+
+    @Test
+    void testIdOf_UnknownMethod() {
+        CompactCallGraph graph = new CompactCallGraph.Builder().build();
+        assertEquals(-1, graph.idOf(caller));
+        assertTrue(graph.toBitSet(Set.of(caller)).isEmpty());
+    }
+}
@@ -18,13 +18,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 /**
  * Unit tests for CoverageFilter class.
  */
-@ExtendWith(MockitoExtension.class)
+@ExtendWith({MockitoExtension.class, AnalysisSessionExtension.class})
 class CoverageFilterTest {
 
     @TempDir
@@ -67,8 +68,9 @@ class CoverageFilterTest {
         ClassType classType = mock(ClassType.class);
         when(method.getDeclClassType()).thenReturn(classType);
         when(classType.getFullyQualifiedName()).thenReturn(className);
-        when(method.getName()).thenReturn(methodName);
-        when(method.getParameterTypes()).thenReturn(List.of());
+        // The name and the parameters of the caller are not needed for the line coverage
+        lenient().when(method.getName()).thenReturn(methodName);
+        lenient().when(method.getParameterTypes()).thenReturn(List.of());
         return method;
     }
 
@@ -395,4 +397,110 @@ class CoverageFilterTest {
                 anotherMethodSig, executeWithParam, jacocoHtmlDirs, false);
         assertFalse(resultWithParam, "execute(HttpRequest) with parameter should not be covered");
     }
+
+    @Test
+    void testIsAlreadyCoveredByTests_WithCallSiteLines() throws IOException {
+        testMethod = createMethodSignature("com.example.TestClass$Inner", "testMethod");
+        thirdPartyMethod = createMethodSignature("org.apache.http.HttpClient", "execute");
+        Path packageDir = createPackageDirectory("com.example");
+        // The HTML report shows every line as covered, but the call sites are looked up in the XML report
+        String htmlContent = """
+                <html>
+                <body>
+                <span id="L10" class="fc">public void testMethod() {</span>
+                <span id="L11" class="fc">    client.execute();</span>
+                <span id="L12" class="fc">    if (retry) client.execute();</span>
+                </body>
+                </html>
+                """;
+        writeHtmlFile(packageDir, "TestClass", htmlContent);
+        String xmlContent = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <report>
+                    <package name="com/example">
+                        <class name="com/example/TestClass$Inner" sourcefilename="TestClass.java">
+                            <method name="testMethod" desc="()V" line="10"/>
+                        </class>
+                        <sourcefile name="TestClass.java">
+                            <line nr="10" ci="1" mi="0"/>
+                            <line nr="11" ci="2" mi="0"/>
+                            <line nr="12" ci="0" mi="3"/>
+                        </sourcefile>
+                    </package>
+                </report>
+                """;
+        Files.writeString(jacocoDir.resolve("jacoco.xml"), xmlContent);
+        assertTrue(CoverageFilter.isAlreadyCoveredByTests(testMethod, thirdPartyMethod, new int[]{11},
+                jacocoHtmlDirs, false, false));
+        assertTrue(CoverageFilter.isAlreadyCoveredByTests(testMethod, thirdPartyMethod, new int[]{11, 12},
+                jacocoHtmlDirs, false, false));
+        assertFalse(CoverageFilter.isAlreadyCoveredByTests(testMethod, thirdPartyMethod, new int[]{12},
+                jacocoHtmlDirs, false, false), "Line 12 has no covered instructions");
+        // Without call site lines, the call is not covered unless the HTML report is used as a fallback
+        assertFalse(CoverageFilter.isAlreadyCoveredByTests(testMethod, thirdPartyMethod, new int[0],
+                jacocoHtmlDirs, false, false));
+        assertTrue(CoverageFilter.isAlreadyCoveredByTests(testMethod, thirdPartyMethod, new int[0],
+                jacocoHtmlDirs, true, false));
+    }
+
+    @Test
+    void testIsAlreadyCoveredByTests_WithCallSiteLinesOfAClassMissingFromTheReports() throws IOException {
+        testMethod = createMethodSignature("com.example.TestClass", "testMethod");
+        thirdPartyMethod = createMethodSignature("org.apache.http.HttpClient", "execute");
+        Path packageDir = createPackageDirectory("com.example");
+        // Only the HTML report has the class
+        String htmlContent = """
+                <html>
+                <body>
+                <span id="L10" class="fc">public void testMethod() {</span>
+                <span id="L11" class="fc">    client.execute();</span>
+                </body>
+                </html>
+                """;
+        writeHtmlFile(packageDir, "TestClass", htmlContent);
+        Files.writeString(jacocoDir.resolve("jacoco.xml"), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <report>
+                    <package name="com/example">
+                        <class name="com/example/Other" sourcefilename="Other.java"/>
+                    </package>
+                </report>
+                """);
+        assertFalse(CoverageFilter.isAlreadyCoveredByTests(testMethod, thirdPartyMethod, new int[]{11},
+                jacocoHtmlDirs, false, false));
+        assertTrue(CoverageFilter.isAlreadyCoveredByTests(testMethod, thirdPartyMethod, new int[]{11},
+                jacocoHtmlDirs, true, false));
+    }
+
+    @Test
+    void testIsAlreadyCoveredByTests_WithCallSiteLinesInSeveralReports() throws IOException {
+        testMethod = createMethodSignature("com.example.TestClass", "testMethod");
+        thirdPartyMethod = createMethodSignature("org.apache.http.HttpClient", "execute");
+        String xmlTemplate = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <report>
+                    <package name="com/example">
+                        <class name="com/example/TestClass" sourcefilename="TestClass.java">
+                            <method name="testMethod" desc="()V" line="10"/>
+                        </class>
+                        <sourcefile name="TestClass.java">
+                            <line nr="%d" ci="1" mi="0"/>
+                        </sourcefile>
+                    </package>
+                </report>
+                """;
+        // E.g. the reports of the unit and the integration tests, each covering one of the calls
+        Files.writeString(jacocoDir.resolve("jacoco.xml"), xmlTemplate.formatted(11));
+        Path integrationDir = Files.createDirectories(tempDir.resolve("jacoco-it"));
+        Files.writeString(integrationDir.resolve("jacoco.xml"), xmlTemplate.formatted(12));
+        jacocoHtmlDirs.add(integrationDir.toFile());
+        CoverageFilter.loadCoverage(jacocoHtmlDirs);
+
+        assertTrue(CoverageFilter.isAlreadyCoveredByTests(testMethod, thirdPartyMethod, new int[]{11},
+                jacocoHtmlDirs, false, false));
+        assertTrue(CoverageFilter.isAlreadyCoveredByTests(testMethod, thirdPartyMethod, new int[]{12},
+                jacocoHtmlDirs, false, false));
+        assertFalse(CoverageFilter.isAlreadyCoveredByTests(testMethod, thirdPartyMethod, new int[]{13},
+                jacocoHtmlDirs, false, false), "Line 13 is not covered in any report");
+    }
 }
\ No newline at end of file
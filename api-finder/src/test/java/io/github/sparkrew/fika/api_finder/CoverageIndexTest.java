@@ -0,0 +1,205 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CoverageIndex
+ */
+class CoverageIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String REPORT = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <!DOCTYPE report PUBLIC "-//JACOCO//DTD Report 1.1//EN" "report.dtd">
+            <report name="demo">
+                <sessioninfo id="s1" start="1" dump="2"/>
+                <package name="com/example">
+                    <class name="com/example/Service" sourcefilename="Service.java">
+                        <method name="&lt;init&gt;" desc="()V" line="5">
+                            <counter type="LINE" missed="0" covered="1"/>
+                        </method>
+                        <method name="&lt;init&gt;" desc="(I)V" line="5"/>
+                        <method name="run" desc="(Ljava/lang/String;)V" line="10"/>
+                        <method name="stop" desc="()V" line="20"/>
+                        <counter type="LINE" missed="1" covered="3"/>
+                    </class>
+                    <class name="com/example/Other" sourcefilename="Other.java">
+                        <method name="call" desc="()V" line="3"/>
+                    </class>
+                    <sourcefile name="Service.java">
+                        <line nr="5" mi="0" ci="3" mb="0" cb="0"/>
+                        <line nr="11" mi="0" ci="2" mb="0" cb="0"/>
+                        <line nr="12" mi="4" ci="0" mb="0" cb="0"/>
+                        <line nr="21" mi="0" ci="1" mb="0" cb="0"/>
+                        <line nr="30" mi="0" ci="1" mb="0" cb="0"/>
+                    </sourcefile>
+                    <sourcefile name="Other.java">
+                        <line nr="3" mi="1" ci="0" mb="0" cb="0"/>
+                    </sourcefile>
+                </package>
+                <package name="org/example">
+                    <class name="org/example/Service" sourcefilename="Service.java">
+                        <method name="run" desc="(Ljava/lang/String;)V" line="10"/>
+                    </class>
+                    <sourcefile name="Service.java">
+                        <line nr="10" mi="0" ci="1" mb="0" cb="0"/>
+                    </sourcefile>
+                </package>
+            </report>
+            """;
+
+    @Test
+    void testFromXml_LooksUpCoveredLinesWithinMethodBounds() throws IOException {
+        Path xmlFile = tempDir.resolve("jacoco.xml");
+        Files.writeString(xmlFile, REPORT);
+        CoverageIndex index = CoverageIndex.fromXml(xmlFile.toFile());
+
+        // Both constructors start on line 5 and end before run
+        assertEquals(Set.of(5), index.coveredLinesOfMethod("com/example/Service", "<init>", "()V"));
+        assertEquals(Set.of(5), index.coveredLinesOfMethod("com/example/Service", "<init>", "(I)V"));
+        assertEquals(Set.of(11), index.coveredLinesOfMethod("com/example/Service", "run", "(Ljava/lang/String;)V"));
+        // The last method of the class spans to the end of the source file
+        assertEquals(Set.of(21, 30), index.coveredLinesOfMethod("com/example/Service", "stop", "()V"));
+        assertEquals(Set.of(), index.coveredLinesOfMethod("com/example/Other", "call", "()V"));
+        // Source files are matched within the package of the class
+        assertEquals(Set.of(10), index.coveredLinesOfMethod("org/example/Service", "run", "(Ljava/lang/String;)V"));
+    }
+
+    @Test
+    void testFromXml_ReturnsNullForUnknownMethods() throws IOException {
+        Path xmlFile = tempDir.resolve("jacoco.xml");
+        Files.writeString(xmlFile, REPORT);
+        CoverageIndex index = CoverageIndex.fromXml(xmlFile.toFile());
+
+        assertNull(index.coveredLinesOfMethod("com/example/Service", "run", "()V"));
+        assertNull(index.coveredLinesOfMethod("com/example/Missing", "run", "(Ljava/lang/String;)V"));
+    }
+
+    @Test
+    void testMerge_UnitesCoveredLinesOfAllReports() throws IOException {
+        Path xmlFile = tempDir.resolve("jacoco.xml");
+        Files.writeString(xmlFile, REPORT);
+        Path otherXmlFile = tempDir.resolve("jacoco-it.xml");
+        Files.writeString(otherXmlFile, """
+                <report name="demo-it">
+                    <package name="com/example">
+                        <class name="com/example/Other" sourcefilename="Other.java">
+                            <method name="call" desc="()V" line="3"/>
+                        </class>
+                        <class name="com/example/Added" sourcefilename="Added.java">
+                            <method name="add" desc="()V" line="7"/>
+                        </class>
+                        <sourcefile name="Other.java">
+                            <line nr="3" mi="0" ci="1" mb="0" cb="0"/>
+                        </sourcefile>
+                        <sourcefile name="Added.java">
+                            <line nr="8" mi="0" ci="1" mb="0" cb="0"/>
+                        </sourcefile>
+                    </package>
+                </report>
+                """);
+        CoverageIndex index = CoverageIndex.merge(List.of(CoverageIndex.fromXml(xmlFile.toFile()),
+                CoverageIndex.fromXml(otherXmlFile.toFile())));
+
+        assertEquals(Set.of(11), index.coveredLinesOfMethod("com/example/Service", "run", "(Ljava/lang/String;)V"));
+        assertEquals(Set.of(3), index.coveredLinesOfMethod("com/example/Other", "call", "()V"));
+        assertEquals(Set.of(8), index.coveredLinesOfMethod("com/example/Added", "add", "()V"));
+        assertTrue(index.isLineCovered("org/example/Service", 10));
+        assertFalse(index.isLineCovered("com/example/Service", 12));
+        assertFalse(index.containsClass("com/example/Missing"));
+    }
+
+    @Test
+    void testFromXml_RejectsMalformedReports() throws IOException {
+        Path xmlFile = tempDir.resolve("jacoco.xml");
+        Files.writeString(xmlFile, "<report><package name=\"com/example\">");
+        assertThrows(IOException.class, () -> CoverageIndex.fromXml(xmlFile.toFile()));
+    }
+
+    @Test
+    void testFromExecutionData_ComputesCoveredLinesOfProjectClasses() throws Exception {
+        String className = Sample.class.getName().replace('.', '/');
+        byte[] classBytes;
+        try (InputStream in = Sample.class.getResourceAsStream("/" + className + ".class")) {
+            classBytes = in.readAllBytes();
+        }
+        Path classesDir = tempDir.resolve("classes");
+        Path classFile = classesDir.resolve(className + ".class");
+        Files.createDirectories(classFile.getParent());
+        Files.write(classFile, classBytes);
+
+        // Run the instrumented sample, as the JaCoCo agent would during the tests
+        LoggerRuntime runtime = new LoggerRuntime();
+        RuntimeData data = new RuntimeData();
+        runtime.startup(data);
+        try {
+            byte[] instrumented = new Instrumenter(runtime).instrument(classBytes, className);
+            Class<?> sampleClass = new ClassLoader(getClass().getClassLoader()) {
+                @Override
+                protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                    if (name.equals(Sample.class.getName())) {
+                        return defineClass(name, instrumented, 0, instrumented.length);
+                    }
+                    return super.loadClass(name, resolve);
+                }
+            }.loadClass(Sample.class.getName());
+            sampleClass.getMethod("covered").invoke(null);
+        } finally {
+            runtime.shutdown();
+        }
+        Path execFile = tempDir.resolve("jacoco.exec");
+        try (OutputStream out = Files.newOutputStream(execFile)) {
+            data.collect(new ExecutionDataWriter(out), new ExecutionDataWriter(out), false);
+        }
+
+        CoverageIndex index = CoverageIndex.fromExecutionData(List.of(execFile), classesDir.toString(),
+                "io.github.sparkrew.fika.api_finder");
+
+        assertTrue(index.containsClass(className));
+        Set<Integer> coveredLines = index.coveredLinesOfMethod(className, "covered", "()I");
+        assertNotNull(coveredLines);
+        assertFalse(coveredLines.isEmpty());
+        coveredLines.forEach(line -> assertTrue(index.isLineCovered(className, line)));
+        assertEquals(Set.of(), index.coveredLinesOfMethod(className, "missed", "()I"));
+        // Classes outside the package are not analyzed
+        CoverageIndex otherPackage = CoverageIndex.fromExecutionData(List.of(execFile), classesDir.toString(),
+                "com.example");
+        assertFalse(otherPackage.containsClass(className));
+    }
+
+    public static class Sample {
+
+        public static int covered() {
+            int sum = 0;
+            for (int i = 0; i < 3; i++) {
+                sum += i;
+            }
+            return sum;
+        }
+
+        public static int missed() {
+            int product = 1;
+            for (int i = 1; i < 3; i++) {
+                product *= i;
+            }
+            return product;
+        }
+    }
+}
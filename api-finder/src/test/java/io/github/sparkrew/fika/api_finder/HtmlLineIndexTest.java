@@ -0,0 +1,65 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HtmlLineIndex
+ */
+class HtmlLineIndexTest {
+
+    @Test
+    void testParse_ReadsLinesOfJacocoSourcePage() {
+        String html = """
+                <?xml version="1.0" encoding="UTF-8"?><!DOCTYPE html PUBLIC "-//W3C//DTD XHTML 1.0 Strict//EN" \
+                "http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd"><html xmlns="http://www.w3.org/1999/xhtml">\
+                <head><title>Foo.java</title></head><body onload="window['PR_TAB_WIDTH']=4;prettyPrint()">\
+                <div class="breadcrumb"><a href="../index.html">demo</a> &gt; <span class="el_source">Foo.java</span>\
+                </div><h1>Foo.java</h1><pre class="source lang-java linenums">package com.demo;
+
+                public class Foo extends Bar&lt;String&gt; {
+                <span class="fc" id="L4">    private final Map&lt;String,  Integer&gt; m = new HashMap&lt;&gt;();</span>
+                <!-- <span class="fc" id="L5">comment</span> -->
+                <span class="pc bpc" id="L6" title="1 of 2 branches missed.">        if (a &amp;&amp; b) {</span>
+                <span class="nc" id="L7">            super(&quot;x&quot;, &#39;y&#39;, &#x41;);</span>
+                        }
+                    }
+                }
+                </pre><div class="footer"><span class="right">Created with JaCoCo</span></div></body></html>
+                """;
+        HtmlLineIndex index = HtmlLineIndex.parse(html);
+
+        assertEquals(List.of(
+                new HtmlLineIndex.Line(4, "fc", "private final Map<String,  Integer> m = new HashMap<>();"),
+                new HtmlLineIndex.Line(6, "pc bpc", "if (a && b) {"),
+                new HtmlLineIndex.Line(7, "nc", "super(\"x\", 'y', A);")), index.lines());
+        assertTrue(index.lines().get(0).isFullyCovered());
+        assertFalse(index.lines().get(1).isFullyCovered());
+        assertTrue(index.sourceText().startsWith("package com.demo;\n\npublic class Foo extends Bar<String> {\n"));
+        assertTrue(index.sourceText().contains("    private final Map<String,  Integer>"));
+        assertFalse(index.sourceText().contains("comment"));
+    }
+
+    @Test
+    void testParse_CollapsesWhitespaceOutsidePre() {
+        String html = """
+                <html>
+                <body>
+                <span id="L1" class="fc bfc">public   void\ttestMethod() {</span>
+                <span id='L2' class=fc>    client.<b>execute</b>(&lt;unknown;&gt;);</span>
+                <span id="Legend" class="fc">not a line</span>
+                <span class="fc">no id</span>
+                </body>
+                </html>
+                """;
+        HtmlLineIndex index = HtmlLineIndex.parse(html);
+
+        assertEquals(List.of(
+                new HtmlLineIndex.Line(1, "fc bfc", "public void testMethod() {"),
+                new HtmlLineIndex.Line(2, "fc", "client.execute(<unknown;>);")), index.lines());
+        assertNull(index.sourceText());
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.core.JavaIdentifierFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IncrementalAnalysis.
+ */
+class IncrementalAnalysisTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MethodSignature createMethodSignature(String className, String methodName) {
+        return JavaIdentifierFactory.getInstance().getMethodSignature(className, methodName, "void", List.of());
+    }
+
+    private Path writeJar(String name, Map<String, String> entries) throws IOException {
+        Path jar = tempDir.resolve(name);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                out.putNextEntry(new JarEntry(entry.getKey()));
+                out.write(entry.getValue().getBytes());
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    @Test
+    void testHashClasses_DetectsChangedAddedAndRemovedClasses() throws IOException {
+        Path before = writeJar("before.jar", Map.of(
+                "com/example/A.class", "a",
+                "com/example/B.class", "b",
+                "com/example/C.class", "c",
+                "META-INF/versions/11/com/example/A.class", "a11"));
+        Path after = writeJar("after.jar", Map.of(
+                "com/example/A.class", "a",
+                "com/example/B.class", "b changed",
+                "com/example/D.class", "d"));
+        Map<String, Long> previous = IncrementalAnalysis.hashClasses(before.toString());
+        assertEquals(Set.of("com.example.A", "com.example.B", "com.example.C"), previous.keySet());
+        IncrementalAnalysis.ClassDiff diff =
+                IncrementalAnalysis.diff(previous, IncrementalAnalysis.hashClasses(after.toString()));
+        assertEquals(Set.of("com.example.B"), diff.changed());
+        assertEquals(Set.of("com.example.D"), diff.added());
+        assertEquals(Set.of("com.example.C"), diff.removed());
+        assertFalse(diff.isEmpty());
+    }
+
+    @Test
+    void testHashClasses_ReadsClassesDirectory() throws IOException {
+        Path classes = tempDir.resolve("classes");
+        Files.createDirectories(classes.resolve("com/example"));
+        Files.writeString(classes.resolve("com/example/A.class"), "a");
+        Files.writeString(classes.resolve("com/example/B.class"), "b");
+        Files.writeString(classes.resolve("com/example/notes.txt"), "not a class");
+        Files.writeString(classes.resolve("module-info.class"), "module");
+        Map<String, Long> previous = IncrementalAnalysis.hashClasses(classes.toString());
+        assertEquals(Set.of("com.example.A", "com.example.B"), previous.keySet());
+        Files.writeString(classes.resolve("com/example/B.class"), "b changed");
+        IncrementalAnalysis.ClassDiff diff =
+                IncrementalAnalysis.diff(previous, IncrementalAnalysis.hashClasses(classes.toString()));
+        assertEquals(Set.of("com.example.B"), diff.changed());
+    }
+
+    @Test
+    void testReachableFromChangedClasses_FollowsCallsForward() {
+        MethodSignature publicRun = createMethodSignature("com.example.A", "run");
+        MethodSignature changed = createMethodSignature("com.example.B", "helper");
+        MethodSignature callee = createMethodSignature("com.example.C", "inner");
+        MethodSignature unrelated = createMethodSignature("com.example.D", "other");
+        CompactCallGraph.Builder graphBuilder = new CompactCallGraph.Builder();
+        graphBuilder.addCall(publicRun, changed);
+        graphBuilder.addCall(changed, callee);
+        graphBuilder.addCall(unrelated, callee);
+        Set<MethodSignature> reachable = IncrementalAnalysis.reachableFromChangedClasses(graphBuilder.build(),
+                Set.of("com.example.B"));
+        assertEquals(Set.of(changed, callee), reachable);
+    }
+
+    @Test
+    void testStoreAndLoad_RoundTrip() throws IOException {
+        Path jar = writeJar("app.jar", Map.of("com/example/A.class", "a"));
+        IncrementalAnalysis incrementalAnalysis = IncrementalAnalysis.forInputs(tempDir.resolve("cache"),
+                jar.toString(), List.of(), tempDir.resolve("report.json").toString(), "com.example", null, null,
+                List.<File>of(), Set.of(), CallGraphType.CHA, true);
+        assertNull(incrementalAnalysis.load());
+        MethodSignature publicRun = createMethodSignature("com.example.A", "run");
+        CompactCallGraph.Builder graphBuilder = new CompactCallGraph.Builder();
+        graphBuilder.addMethod(publicRun);
+        Map<String, Long> classHashes = IncrementalAnalysis.hashClasses(jar.toString());
+        incrementalAnalysis.store(new IncrementalAnalysis.State(classHashes, Map.of("com.example.A", 42L),
+                new CallGraphCache.CallGraphData(Set.of(publicRun), graphBuilder.build(), Set.of(), Map.of(),
+                        Map.of())));
+        IncrementalAnalysis.State state = incrementalAnalysis.load();
+        assertNotNull(state);
+        assertEquals(classHashes, state.classHashes());
+        assertEquals(Map.of("com.example.A", 42L), state.classShapes());
+        assertEquals(Set.of(publicRun), state.callGraphData().entryPoints());
+    }
+
+    @Test
+    void testForInputs_JarContentIsNotPartOfTheKey() throws IOException {
+        Path jar = writeJar("app.jar", Map.of("com/example/A.class", "a"));
+        Path cacheDir = tempDir.resolve("cache");
+        String report = tempDir.resolve("report.json").toString();
+        Path before = IncrementalAnalysis.forInputs(cacheDir, jar.toString(), List.of(), report, "com.example", null,
+                null, List.of(), Set.of(), CallGraphType.CHA, true).getStateFile();
+        try (OutputStream out = Files.newOutputStream(jar)) {
+            out.write("not a jar anymore".getBytes());
+        }
+        Path after = IncrementalAnalysis.forInputs(cacheDir, jar.toString(), List.of(), report, "com.example", null,
+                null, List.of(), Set.of(), CallGraphType.CHA, true).getStateFile();
+        Path otherPackage = IncrementalAnalysis.forInputs(cacheDir, jar.toString(), List.of(), report, "com.other",
+                null, null, List.of(), Set.of(), CallGraphType.CHA, true).getStateFile();
+        assertEquals(before, after);
+        assertNotEquals(before, otherPackage);
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+import sootup.java.core.JavaIdentifierFactory;
+import sootup.java.core.JavaSootClass;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProjectView.
+ */
+class ProjectViewTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path copyClass(Class<?> type) throws IOException {
+        String resource = type.getName().replace('.', '/') + ".class";
+        Path target = tempDir.resolve("classes").resolve(resource);
+        Files.createDirectories(target.getParent());
+        try (InputStream in = type.getClassLoader().getResourceAsStream(resource)) {
+            assertNotNull(in);
+            Files.copy(in, target);
+        }
+        return tempDir.resolve("classes");
+    }
+
+    private Path jarOf(Class<?> type) throws URISyntaxException {
+        return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    @Test
+    void testGetApplicationClasses_OnlyEnumeratesTheApplicationInput() throws Exception {
+        Path classes = copyClass(CallGraphType.class);
+        ProjectView view = ProjectView.create(classes.toString(), List.of(jarOf(CommandLine.class)));
+        List<JavaSootClass> applicationClasses = view.getApplicationClasses();
+        assertEquals(1, applicationClasses.size());
+        assertEquals(CallGraphType.class.getName(), applicationClasses.get(0).getType().getFullyQualifiedName());
+        assertTrue(applicationClasses.get(0).isApplicationClass());
+        assertSame(applicationClasses, view.getApplicationClasses());
+    }
+
+    @Test
+    void testGetClass_ResolvesLibraryClassesOnDemand() throws Exception {
+        Path classes = copyClass(CallGraphType.class);
+        ProjectView view = ProjectView.create(classes.toString(), List.of(jarOf(CommandLine.class)));
+        int cachedBefore = view.getCachedClassesCount();
+        var libraryClass = view.getClass(JavaIdentifierFactory.getInstance().getClassType(CommandLine.class.getName()));
+        assertTrue(libraryClass.isPresent());
+        assertTrue(libraryClass.get().isLibraryClass());
+        assertEquals(cachedBefore + 1, view.getCachedClassesCount());
+    }
+}
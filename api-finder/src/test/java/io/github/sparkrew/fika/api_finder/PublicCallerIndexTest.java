@@ -0,0 +1,79 @@
+package io.github.sparkrew.fika.api_finder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.core.JavaIdentifierFactory;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PublicCallerIndex.
+ */
+class PublicCallerIndexTest {
+
+    private final CompactCallGraph.Builder graphBuilder = new CompactCallGraph.Builder();
+    private final Set<MethodSignature> entryPoints = new HashSet<>();
+    private MethodSignature publicA;
+    private MethodSignature publicB;
+    private MethodSignature privateHelper;
+    private MethodSignature privateInner;
+    private MethodSignature thirdPartyCallback;
+
+    @BeforeEach
+    void setUp() {
+        publicA = createMethodSignature("com.example.A", "run");
+        publicB = createMethodSignature("com.example.B", "start");
+        privateHelper = createMethodSignature("com.example.A", "helper");
+        privateInner = createMethodSignature("com.example.A", "inner");
+        thirdPartyCallback = createMethodSignature("org.lib.Callback", "call");
+        entryPoints.add(publicA);
+        entryPoints.add(publicB);
+        // publicA -> privateHelper -> privateInner, publicB -> privateInner
+        // thirdPartyCallback is not added, as third-party methods are pruned from the graph
+        graphBuilder.addCall(publicA, privateHelper);
+        graphBuilder.addCall(privateHelper, privateInner);
+        graphBuilder.addCall(publicB, privateInner);
+    }
+
+    private MethodSignature createMethodSignature(String className, String methodName) {
+        return JavaIdentifierFactory.getInstance().getMethodSignature(className, methodName, "void", List.of());
+    }
+
+    private PublicCallerIndex buildIndex(int threads) throws Exception {
+        return PublicCallerIndex.build(List.of(privateInner, privateHelper, publicA, thirdPartyCallback),
+                graphBuilder.build(), entryPoints, threads);
+    }
+
+    @Test
+    void testPathsTo_StartAtPublicMethodAndEndAtTarget() throws Exception {
+        PublicCallerIndex index = buildIndex(1);
+        List<List<MethodSignature>> paths = index.pathsTo(privateInner);
+        assertEquals(2, paths.size());
+        assertTrue(paths.contains(List.of(publicB, privateInner)));
+        assertTrue(paths.contains(List.of(publicA, privateHelper, privateInner)));
+    }
+
+    @Test
+    void testPathsTo_UnknownMethodHasNoPaths() throws Exception {
+        PublicCallerIndex index = buildIndex(1);
+        assertTrue(index.pathsTo(thirdPartyCallback).isEmpty());
+    }
+
+    @Test
+    void testPathsTo_PublicMethodsAreNotIndexed() throws Exception {
+        PublicCallerIndex index = buildIndex(1);
+        assertTrue(index.pathsTo(publicA).isEmpty());
+        assertTrue(index.pathsTo(publicB).isEmpty());
+    }
+
+    @Test
+    void testBuild_ParallelMatchesSerial() throws Exception {
+        PublicCallerIndex serial = buildIndex(1);
+        PublicCallerIndex parallel = buildIndex(4);
+        assertEquals(serial.pathsTo(privateInner), parallel.pathsTo(privateInner));
+        assertEquals(serial.pathsTo(privateHelper), parallel.pathsTo(privateHelper));
+    }
+}
@@ -24,7 +24,7 @@ import static org.mockito.Mockito.when;
 /**
  * Unit tests for RecordCounter class.
  */
-@ExtendWith(MockitoExtension.class)
+@ExtendWith({MockitoExtension.class, AnalysisSessionExtension.class})
 class RecordCounterTest {
 
     @TempDir
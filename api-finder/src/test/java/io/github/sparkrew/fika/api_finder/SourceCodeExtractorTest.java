@@ -21,7 +21,7 @@ import static org.mockito.Mockito.when;
 /**
  * Unit tests for SourceCodeExtractor class.
  */
-@ExtendWith(MockitoExtension.class)
+@ExtendWith({MockitoExtension.class, AnalysisSessionExtension.class})
 class SourceCodeExtractorTest {
 
     @TempDir
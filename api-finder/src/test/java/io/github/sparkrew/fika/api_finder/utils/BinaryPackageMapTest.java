@@ -0,0 +1,57 @@
+package io.github.sparkrew.fika.api_finder.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BinaryPackageMap. The lookups are tested with maps from the preprocessor's writer
+ * (BinaryPackageMapWriterTest in the preprocessor), so both sides of the format are covered by one test.
+ */
+class BinaryPackageMapTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testIsBinaryPackageMap_RejectsJsonAndShortFiles() throws IOException {
+        Path json = tempDir.resolve("package-map.json");
+        Files.writeString(json, "{\"com.example\": [\"com.example:lib:jar:1.0\"]}");
+        assertFalse(BinaryPackageMap.isBinaryPackageMap(json));
+        Path empty = tempDir.resolve("empty.bin");
+        Files.write(empty, new byte[]{0x46, 0x4b});
+        assertFalse(BinaryPackageMap.isBinaryPackageMap(empty));
+        assertThrows(IOException.class, () -> BinaryPackageMap.open(json));
+    }
+
+    @Test
+    void testOpen_RejectsOtherVersionsAndTruncatedFiles() throws IOException {
+        Path otherVersion = tempDir.resolve("other-version.bin");
+        Files.write(otherVersion, header(BinaryPackageMap.FORMAT_VERSION + 1, 0));
+        assertTrue(BinaryPackageMap.isBinaryPackageMap(otherVersion));
+        assertThrows(IOException.class, () -> BinaryPackageMap.open(otherVersion));
+        // The header announces a package that the file does not contain
+        Path truncated = tempDir.resolve("truncated.bin");
+        Files.write(truncated, header(BinaryPackageMap.FORMAT_VERSION, 1));
+        assertThrows(IOException.class, () -> BinaryPackageMap.open(truncated));
+    }
+
+    private static byte[] header(int version, int packageCount) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(BinaryPackageMap.MAGIC);
+        out.writeInt(version);
+        out.writeInt(packageCount);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(0);
+        return bytes.toByteArray();
+    }
+}
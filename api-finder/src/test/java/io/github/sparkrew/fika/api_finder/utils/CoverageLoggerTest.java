@@ -0,0 +1,145 @@
+package io.github.sparkrew.fika.api_finder.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.sparkrew.fika.api_finder.AnalysisOptions;
+import io.github.sparkrew.fika.api_finder.AnalysisSession;
+import io.github.sparkrew.fika.api_finder.CallGraphType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CoverageLogger
+ */
+class CoverageLoggerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFlush_ReplacesThePreviousLogWithOneLinePerPair() throws Exception {
+        Path report = tempDir.resolve("report.json");
+        Path coverageFile = tempDir.resolve("report_coverage.json");
+        Files.writeString(coverageFile, "{\"caller\":\"com.example.Old.run()\"}\n");
+        createSession(report).run(() -> {
+            CoverageLogger.logCoverage("com.example.A.run()", "org.lib.Client.send()", true);
+            CoverageLogger.logCoverage("com.example.B.run()", "org.lib.Client.close()", false);
+            CoverageLogger.flush();
+            // The log of the session was closed, so a second flush does not change the file
+            CoverageLogger.flush();
+        });
+
+        assertEquals(List.of(
+                Map.of("caller", "com.example.A.run()", "thirdPartyMethod", "org.lib.Client.send()", "covered", true),
+                Map.of("caller", "com.example.B.run()", "thirdPartyMethod", "org.lib.Client.close()", "covered", false)),
+                readEntries(coverageFile));
+    }
+
+    @Test
+    void testLogCoverage_AppendsFullBatchesBeforeTheFlush() throws Exception {
+        Path coverageFile = tempDir.resolve("report_coverage.json");
+        AnalysisSession session = createSession(tempDir.resolve("report.json"));
+        session.run(() -> {
+            for (int i = 0; i <= CoverageLogger.BATCH_SIZE; i++) {
+                CoverageLogger.logCoverage("com.example.Caller.run" + i + "()", "org.lib.Client.send()", true);
+            }
+        });
+        assertEquals(CoverageLogger.BATCH_SIZE, readCallers(coverageFile).size());
+
+        session.run(CoverageLogger::flush);
+        List<String> callers = readCallers(coverageFile);
+        assertEquals(CoverageLogger.BATCH_SIZE + 1, callers.size());
+        assertEquals("com.example.Caller.run" + CoverageLogger.BATCH_SIZE + "()", callers.get(callers.size() - 1));
+    }
+
+    @Test
+    void testFlush_WritesNothingWithoutLoggedPairs() {
+        createSession(tempDir.resolve("report.json")).run(CoverageLogger::flush);
+        assertFalse(Files.exists(tempDir.resolve("report_coverage.json")));
+    }
+
+    @Test
+    void testFlush_ConcurrentSessionsWriteTheirOwnLogs() throws Exception {
+        AnalysisSession first = createSession(tempDir.resolve("first.json"));
+        AnalysisSession second = createSession(tempDir.resolve("second.json"));
+        flushConcurrently(List.of(first, second));
+
+        assertEquals(50, readCallers(tempDir.resolve("first_coverage.json")).size());
+        assertEquals(50, readCallers(tempDir.resolve("second_coverage.json")).size());
+        assertFalse(Files.exists(tempDir.resolve("coverage.json")));
+    }
+
+    @Test
+    void testFlush_ConcurrentSessionsWithTheSameReportKeepAllEntries() throws Exception {
+        Path report = tempDir.resolve("report.json");
+        List<AnalysisSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sessions.add(createSession(report));
+        }
+        flushConcurrently(sessions);
+
+        List<String> callers = readCallers(tempDir.resolve("report_coverage.json"));
+        assertEquals(4 * 50, callers.size());
+        assertEquals(4 * 50, callers.stream().distinct().count());
+    }
+
+    private AnalysisSession createSession(Path report) {
+        return new AnalysisSession(new AnalysisOptions("app.jar", List.of(), report.toString(), "com.example", null,
+                null, List.of(), List.of(), false, true, 1, CallGraphType.CHA, true, null, false));
+    }
+
+    /**
+     * Logs 50 pairs with a caller that is unique to each session, then lets all sessions flush at the same time.
+     */
+    private void flushConcurrently(List<AnalysisSession> sessions) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(sessions.size());
+        ExecutorService executor = Executors.newFixedThreadPool(sessions.size());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < sessions.size(); i++) {
+                AnalysisSession session = sessions.get(i);
+                String caller = "com.example.Caller" + i + ".run";
+                futures.add(executor.submit(() -> session.call(() -> {
+                    for (int j = 0; j < 50; j++) {
+                        CoverageLogger.logCoverage(caller + j + "()", "org.lib.Client.send()", j % 2 == 0);
+                    }
+                    barrier.await();
+                    CoverageLogger.flush();
+                    return null;
+                })));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<Map<String, Object>> readEntries(Path coverageFile) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(coverageFile)) {
+            entries.add(mapper.readValue(line, new TypeReference<>() {
+            }));
+        }
+        return entries;
+    }
+
+    private List<String> readCallers(Path coverageFile) throws IOException {
+        return readEntries(coverageFile).stream().map(entry -> (String) entry.get("caller")).toList();
+    }
+}
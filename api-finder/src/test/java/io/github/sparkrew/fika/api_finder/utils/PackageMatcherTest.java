@@ -1,13 +1,17 @@
 package io.github.sparkrew.fika.api_finder.utils;
 
+import io.github.sparkrew.fika.api_finder.AnalysisSession;
+import io.github.sparkrew.fika.api_finder.AnalysisSessionExtension;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -15,6 +19,7 @@ import static org.junit.jupiter.api.Assertions.*;
 /**
  * Unit tests for PackageMatcher
  */
+@ExtendWith(AnalysisSessionExtension.class)
 class PackageMatcherTest {
 
     @TempDir
@@ -145,4 +150,43 @@ class PackageMatcherTest {
         assertNotNull(dependency);
         assertEquals("com.google.guava:guava:31.0-jre", dependency);
     }
+
+    @Test
+    void testGetDependencyNameOfClass_WithJsonPackageMap() {
+        assertEquals("com.google.guava:guava:31.0-jre",
+                PackageMatcher.getDependencyNameOfClass("com.google.common.ImmutableList", packageMapFile));
+    }
+
+    @Test
+    void testGetDependencyName_WithAggregatedPackageMap() throws IOException {
+        Path aggregatedMapFile = tempDir.resolve("aggregated-package-map.json");
+        Files.writeString(aggregatedMapFile, """
+                {
+                    "packages": {
+                        "org.apache.commons.lang3": ["org.apache.commons:commons-lang3:jar:3.12.0"]
+                    },
+                    "modules": {
+                        "com.example:app": ["org.apache.commons:commons-lang3:jar:3.12.0"],
+                        "com.example:lib": []
+                    }
+                }
+                """);
+        new AnalysisSession(null).run(() -> {
+            assertEquals("org.apache.commons:commons-lang3:3.12.0",
+                    PackageMatcher.getDependencyName("org.apache.commons.lang3", aggregatedMapFile));
+            assertFalse(PackageMatcher.containsPackage("modules", aggregatedMapFile));
+        });
+    }
+
+    @Test
+    void testUseDependencyMap_ReplacesThePackageMapFile() {
+        new AnalysisSession(null).run(() -> {
+            PackageMatcher.useDependencyMap(Map.of("org.junit.jupiter.api",
+                    Set.of("org.junit.jupiter:junit-jupiter-api:jar:5.10.1")));
+            assertEquals("org.junit.jupiter:junit-jupiter-api:5.10.1",
+                    PackageMatcher.getDependencyName("org.junit.jupiter.api", packageMapFile));
+            assertFalse(PackageMatcher.containsPackage("com.example.test", packageMapFile));
+            assertTrue(PackageMatcher.containsPackage("org.junit.jupiter.api", null));
+        });
+    }
 }
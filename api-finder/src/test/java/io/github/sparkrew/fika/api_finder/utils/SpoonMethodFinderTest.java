@@ -1,5 +1,6 @@
 package io.github.sparkrew.fika.api_finder.utils;
 
+import io.github.sparkrew.fika.api_finder.AnalysisSessionExtension;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,7 +23,7 @@ import static org.mockito.Mockito.when;
 /**
  * Unit tests for SpoonMethodFinder
  */
-@ExtendWith(MockitoExtension.class)
+@ExtendWith({MockitoExtension.class, AnalysisSessionExtension.class})
 class SpoonMethodFinderTest {
 
     @TempDir
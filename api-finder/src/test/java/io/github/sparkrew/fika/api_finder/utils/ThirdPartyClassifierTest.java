@@ -0,0 +1,78 @@
+package io.github.sparkrew.fika.api_finder.utils;
+
+import io.github.sparkrew.fika.api_finder.AnalysisSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.core.JavaIdentifierFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ThirdPartyClassifier
+ */
+class ThirdPartyClassifierTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path packageMapFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        packageMapFile = tempDir.resolve("package-map.json");
+        String jsonContent = """
+                {
+                    "org.apache.commons.lang3": ["org.apache.commons:commons-lang3:jar:3.12.0"],
+                    "org.junit.jupiter.api": ["org.junit.jupiter:junit-jupiter-api:jar:5.10.1"],
+                    "com.example.app": ["com.example:app:jar:1.0.0"]
+                }
+                """;
+        Files.writeString(packageMapFile, jsonContent);
+    }
+
+    private MethodSignature createMethodSignature(String className) {
+        return JavaIdentifierFactory.getInstance().getMethodSignature(className, "run", "void", List.of());
+    }
+
+    @Test
+    void testIsThirdPartyPackage_ChecksIgnoredPrefixesAndPackageMap() {
+        // A fresh session, so the package map of other tests is not reused
+        new AnalysisSession(null).run(() -> {
+            ThirdPartyClassifier classifier = new ThirdPartyClassifier(Set.of("java.", "org.junit", "com.example."),
+                    packageMapFile);
+            assertTrue(classifier.isThirdPartyPackage("org.apache.commons.lang3"));
+            assertFalse(classifier.isThirdPartyPackage("org.junit.jupiter.api"));
+            assertFalse(classifier.isThirdPartyPackage("com.example.app"));
+            assertFalse(classifier.isThirdPartyPackage("org.unknown"));
+            assertTrue(classifier.test(createMethodSignature("org.apache.commons.lang3.StringUtils")));
+            assertFalse(classifier.test(createMethodSignature("java.lang.String")));
+        });
+    }
+
+    @Test
+    void testPrefixTrie_MatchesLikeStartsWith() {
+        Set<String> prefixes = Set.of("java.", "org.junit", "org.junit.jupiter", "com.sun.");
+        ThirdPartyClassifier.PrefixTrie trie = new ThirdPartyClassifier.PrefixTrie(prefixes);
+        for (String name : List.of("java.util", "java", "javax.crypto", "org.junit", "org.junitx.Foo",
+                "org.jun", "com.sun.net", "com.sunny", "", "org")) {
+            boolean expected = prefixes.stream().anyMatch(name::startsWith);
+            assertEquals(expected, trie.matchesPrefixOf(name), name);
+        }
+    }
+
+    @Test
+    void testPrefixTrie_EmptyPrefixMatchesEverything() {
+        ThirdPartyClassifier.PrefixTrie trie = new ThirdPartyClassifier.PrefixTrie(Set.of(""));
+        assertTrue(trie.matchesPrefixOf("org.apache"));
+        assertTrue(trie.matchesPrefixOf(""));
+        assertFalse(new ThirdPartyClassifier.PrefixTrie(Set.of()).matchesPrefixOf("org.apache"));
+    }
+}
@@ -0,0 +1,201 @@
+package io.github.sparkrew.fika.preprocessor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * The scanning and writing shared by the Mojos that build a package map.
+ * The jars are scanned in parallel, each into its own result, and the results are merged afterwards. Both output
+ * formats are sorted, so the output does not depend on the order in which the jars are scanned.
+ * The contents of each jar are cached under {@code target/fika-scan-cache} ({@link ArtifactScanCache}), so later runs
+ * only scan new or changed jars.
+ */
+public abstract class AbstractPackageMapMojo extends AbstractMojo {
+
+    protected final Map<String, Set<String>> packageToDependencies = new HashMap<>();
+    protected final Map<String, Set<String>> classToDependencies = new HashMap<>();
+    /**
+     * The format of the output file: "json" or "binary".
+     */
+    @Parameter(property = "outputFormat", defaultValue = "json")
+    protected String outputFormat;
+    /**
+     * Whether to add the class-to-dependency index to the output. Only the binary format has the index.
+     */
+    @Parameter(property = "classIndex", defaultValue = "false")
+    protected boolean classIndex;
+    /**
+     * The number of jars to scan at the same time. 0 uses one thread per available processor.
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    int threads;
+    /**
+     * Whether to reuse the contents of jars that did not change since the last run.
+     */
+    @Parameter(property = "useScanCache", defaultValue = "true")
+    boolean useScanCache;
+    @Parameter(property = "scanCacheDirectory", defaultValue = "${project.build.directory}/fika-scan-cache")
+    File scanCacheDirectory;
+
+    protected int getThreads() {
+        return threads;
+    }
+
+    protected boolean isBinaryOutput() {
+        return "binary".equalsIgnoreCase(outputFormat);
+    }
+
+    protected void checkClassIndex() {
+        if (classIndex && !isBinaryOutput()) {
+            getLog().warn("The class index is only written in the binary format, use -DoutputFormat=binary");
+            classIndex = false;
+        }
+    }
+
+    /**
+     * Adds the jar of the artifact to the jars to scan, keyed by its long ID. Other artifacts (e.g. the classes
+     * directory of a module in the same reactor) are skipped.
+     *
+     * @return The long ID of the artifact, or null if it was skipped.
+     */
+    protected String addJar(Artifact artifact, Map<String, File> jarFiles) {
+        String dependencyId = getArtifactLongId(artifact);
+        File jarFile = artifact.getFile();
+        if (jarFile != null && jarFile.isFile()) {
+            jarFiles.putIfAbsent(dependencyId, jarFile);
+            return dependencyId;
+        }
+        getLog().warn("Skipping non-jar dependency: " + dependencyId);
+        return null;
+    }
+
+    /**
+     * Scans the jars and adds their packages (and classes, for the class index) to the maps.
+     */
+    protected void scanAndMerge(Map<String, File> jarFiles) throws MojoExecutionException {
+        for (JarContents contents : scanJars(jarFiles)) {
+            for (String packageName : contents.packageNames) {
+                packageToDependencies.computeIfAbsent(packageName, k -> new HashSet<>()).add(contents.dependencyId);
+            }
+            if (classIndex) {
+                for (String className : contents.classNames) {
+                    classToDependencies.computeIfAbsent(className, k -> new HashSet<>()).add(contents.dependencyId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans the jars on a pool of worker threads. Each jar is read into its own {@link JarContents}, so the workers
+     * share no state.
+     */
+    private List<JarContents> scanJars(Map<String, File> jarFiles) throws MojoExecutionException {
+        int poolSize = getThreads() > 0 ? getThreads() : Runtime.getRuntime().availableProcessors();
+        ArtifactScanCache cache = useScanCache ? new ArtifactScanCache(scanCacheDirectory.toPath(), getLog()) : null;
+        AtomicInteger cachedJars = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(poolSize);
+        try {
+            List<JarContents> contents = pool.submit(() -> jarFiles.entrySet().parallelStream()
+                    .map(jar -> {
+                        JarContents cached = cache == null ? null : cache.load(jar.getKey(), jar.getValue());
+                        if (cached != null) {
+                            cachedJars.incrementAndGet();
+                            return cached;
+                        }
+                        JarContents scanned = processJar(jar.getValue(), jar.getKey());
+                        if (cache != null && scanned.readFully) {
+                            cache.store(scanned, jar.getValue());
+                        }
+                        return scanned;
+                    })
+                    .toList()).get();
+            getLog().info("Scanned " + (contents.size() - cachedJars.get()) + " jars, reused " + cachedJars.get()
+                    + " from the scan cache");
+            return contents;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while scanning the dependency jars", e);
+        } catch (ExecutionException e) {
+            throw new MojoExecutionException("Failed to scan the dependency jars", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private JarContents processJar(File jarFile, String dependencyId) {
+        JarContents contents = new JarContents(dependencyId);
+        try (JarFile jar = new JarFile(jarFile)) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (name.endsWith(".class") && !entry.isDirectory()) {
+                    String className = name.replace('/', '.').replace(".class", "");
+                    int lastDot = className.lastIndexOf('.');
+                    if (lastDot > 0) {
+                        String packageName = className.substring(0, lastDot);
+                        if (packageName.contains("-"))
+                            continue; // Skip names with hyphens such as meta-inf, as they are not valid Java package names
+                        contents.packageNames.add(packageName);
+                        contents.classNames.add(className);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            getLog().error("Failed to read jar file: " + jarFile, e);
+            // Keep what was read, but do not cache it
+            contents.readFully = false;
+        }
+        return contents;
+    }
+
+    /**
+     * Returns the package map with sorted packages and dependencies, so the file is the same for every build of the
+     * same dependencies.
+     */
+    protected Map<String, Set<String>> sortedPackageMap() {
+        Map<String, Set<String>> sortedMap = new TreeMap<>();
+        packageToDependencies.forEach((packageName, dependencies) ->
+                sortedMap.put(packageName, new TreeSet<>(dependencies)));
+        return sortedMap;
+    }
+
+    protected void writeMapToJson(Object value, File outputFile) {
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            mapper.writerWithDefaultPrettyPrinter().writeValue(outputFile, value);
+            getLog().info("Wrote package-dependency map to " + outputFile.getAbsolutePath());
+        } catch (IOException e) {
+            getLog().error("Failed to write JSON output", e);
+        }
+    }
+
+    protected void writeMapToBinary(File outputFile) {
+        try {
+            BinaryPackageMapWriter.write(packageToDependencies, classToDependencies, outputFile);
+            getLog().info("Wrote binary package-dependency map to " + outputFile.getAbsolutePath());
+        } catch (IOException e) {
+            getLog().error("Failed to write binary output", e);
+        }
+    }
+
+    private String getArtifactLongId(Artifact a) {
+        return a.getGroupId()
+                + ":" + a.getArtifactId()
+                + ":" + a.getType()
+                + (a.getClassifier() != null ? ":" + a.getClassifier() : "")
+                + ":" + a.getVersion();
+    }
+}
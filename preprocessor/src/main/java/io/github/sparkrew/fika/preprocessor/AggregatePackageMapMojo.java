@@ -0,0 +1,79 @@
+package io.github.sparkrew.fika.preprocessor;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.*;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Builds one package map for all the modules of a multi-module build. The dependencies of every module in the reactor
+ * are collected first, and each distinct dependency jar is scanned once, however many modules use it.
+ * In JSON, the output has the merged package map under "packages" and the dependencies of each module
+ * ("groupId:artifactId") under "modules":
+ * <pre>
+ * {
+ *   "packages": { "org.apache.commons.lang3": ["org.apache.commons:commons-lang3:jar:3.12.0"] },
+ *   "modules": { "com.example:app": ["org.apache.commons:commons-lang3:jar:3.12.0"] }
+ * }
+ * </pre>
+ * The api-finder reads this file like the map of a single module. The binary format has no module attribution.
+ */
+@Mojo(name = "aggregate", aggregator = true, defaultPhase = LifecyclePhase.GENERATE_RESOURCES,
+        requiresDependencyResolution = ResolutionScope.TEST)
+@Execute(phase = LifecyclePhase.COMPILE)
+public class AggregatePackageMapMojo extends AbstractPackageMapMojo {
+
+    @Parameter(property = "outputFile", required = true)
+    private File outputFile;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    public void execute() throws MojoExecutionException {
+        List<MavenProject> modules = session.getProjects();
+        getLog().info("Processing the dependencies of " + modules.size() + " modules to build one package map");
+        checkClassIndex();
+        Map<String, File> jarFiles = new LinkedHashMap<>();
+        Map<String, Set<String>> moduleToDependencies = collectDependencies(modules, jarFiles);
+        getLog().info("Found " + jarFiles.size() + " distinct dependency jars");
+        scanAndMerge(jarFiles);
+        if (isBinaryOutput()) {
+            writeMapToBinary(outputFile);
+        } else {
+            writeMapToJson(aggregatedMap(moduleToDependencies), outputFile);
+        }
+    }
+
+    /**
+     * Adds the dependency jars of the modules to the jars to scan, each jar once, and returns the dependencies of each
+     * module ("groupId:artifactId").
+     */
+    Map<String, Set<String>> collectDependencies(List<MavenProject> modules, Map<String, File> jarFiles) {
+        Map<String, Set<String>> moduleToDependencies = new TreeMap<>();
+        for (MavenProject module : modules) {
+            Set<String> dependencies = moduleToDependencies.computeIfAbsent(
+                    module.getGroupId() + ":" + module.getArtifactId(), k -> new TreeSet<>());
+            for (Artifact artifact : module.getArtifacts()) {
+                String dependencyId = addJar(artifact, jarFiles);
+                if (dependencyId != null) {
+                    dependencies.add(dependencyId);
+                }
+            }
+        }
+        return moduleToDependencies;
+    }
+
+    /**
+     * Returns the JSON output: the merged package map of the scanned jars and the dependencies of each module.
+     */
+    Map<String, Object> aggregatedMap(Map<String, Set<String>> moduleToDependencies) {
+        Map<String, Object> output = new LinkedHashMap<>();
+        output.put("packages", sortedPackageMap());
+        output.put("modules", moduleToDependencies);
+        return output;
+    }
+}
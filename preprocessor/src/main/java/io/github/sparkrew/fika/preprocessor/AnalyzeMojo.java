@@ -0,0 +1,109 @@
+package io.github.sparkrew.fika.preprocessor;
+
+import io.github.sparkrew.fika.api_finder.AnalysisOptions;
+import io.github.sparkrew.fika.api_finder.AnalysisSession;
+import io.github.sparkrew.fika.api_finder.CallGraphType;
+import io.github.sparkrew.fika.api_finder.MethodExtractor;
+import io.github.sparkrew.fika.api_finder.utils.PackageMatcher;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.*;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Runs the api-finder on the project in the Maven JVM. The package map is built as in the preprocess goal but is
+ * handed to the analysis in memory, and the analysis reads the compiled classes of the project with the resolved
+ * dependency jars as a separate library input, so neither a package map file nor a jar with dependencies is needed.
+ * If an output file is given, the package map is also written there, in the same format as the preprocess goal.
+ */
+@Mojo(name = "analyze", defaultPhase = LifecyclePhase.VERIFY, requiresDependencyResolution = ResolutionScope.TEST)
+@Execute(phase = LifecyclePhase.COMPILE)
+public class AnalyzeMojo extends AbstractPackageMapMojo {
+
+    @Parameter(defaultValue = "${project}", required = true, readonly = true)
+    MavenProject project;
+    /**
+     * The package name of the project, whose classes are not third-party.
+     */
+    @Parameter(property = "packageName", required = true)
+    private String packageName;
+    @Parameter(property = "reportFile", defaultValue = "${project.build.directory}/third_party_apis.json")
+    private File reportFile;
+    @Parameter(property = "sourceDirectory", defaultValue = "${project.build.sourceDirectory}")
+    private File sourceDirectory;
+    /**
+     * The JaCoCo HTML report directories, used to skip the methods that are already covered by tests.
+     */
+    @Parameter(property = "jacocoReports")
+    private List<File> jacocoReports = new ArrayList<>();
+    /**
+     * The JaCoCo execution data files (e.g. target/jacoco.exec). The coverage is computed from them and the compiled
+     * classes, so the JaCoCo report goal does not have to run first.
+     */
+    @Parameter(property = "jacocoExecFiles")
+    private List<File> jacocoExecFiles = new ArrayList<>();
+    /**
+     * Whether the calls without line coverage (classes compiled without line numbers, or reports without
+     * jacoco.xml) are checked by name in the JaCoCo HTML reports. Otherwise they are not covered.
+     */
+    @Parameter(property = "htmlCoverageFallback", defaultValue = "false")
+    private boolean htmlCoverageFallback;
+    @Parameter(property = "enableAnalysisLogs", defaultValue = "true")
+    private boolean enableAnalysisLogs;
+    @Parameter(property = "callGraph", defaultValue = "CHA")
+    private CallGraphType callGraphType;
+    @Parameter(property = "applicationOnly", defaultValue = "true")
+    private boolean applicationOnly;
+    /**
+     * Directory for the call graph cache of the api-finder (optional).
+     */
+    @Parameter(property = "cacheDir")
+    private File cacheDir;
+    @Parameter(property = "incremental", defaultValue = "false")
+    private boolean incremental;
+    /**
+     * Where to also write the package map (optional).
+     */
+    @Parameter(property = "outputFile")
+    private File outputFile;
+
+    public void execute() throws MojoExecutionException {
+        File classesDirectory = new File(project.getBuild().getOutputDirectory());
+        if (!classesDirectory.isDirectory()) {
+            throw new MojoExecutionException("No compiled classes to analyze in " + classesDirectory);
+        }
+        getLog().info("Processing dependencies to build package-to-dependency map");
+        Map<String, File> jarFiles = new LinkedHashMap<>();
+        for (Artifact artifact : project.getArtifacts()) {
+            addJar(artifact, jarFiles);
+        }
+        scanAndMerge(jarFiles);
+        if (outputFile != null) {
+            checkClassIndex();
+            if (isBinaryOutput()) {
+                writeMapToBinary(outputFile);
+            } else {
+                writeMapToJson(sortedPackageMap(), outputFile);
+            }
+        }
+
+        List<Path> dependencyPaths = jarFiles.values().stream().map(File::toPath).toList();
+        int analysisThreads = getThreads() > 0 ? getThreads() : Runtime.getRuntime().availableProcessors();
+        AnalysisOptions options = new AnalysisOptions(classesDirectory.getPath(), dependencyPaths,
+                reportFile.getPath(), packageName, null,
+                sourceDirectory != null && sourceDirectory.isDirectory() ? sourceDirectory.getPath() : null,
+                jacocoReports, jacocoExecFiles.stream().map(File::toPath).toList(), htmlCoverageFallback,
+                enableAnalysisLogs,
+                analysisThreads, callGraphType, applicationOnly,
+                cacheDir == null ? null : cacheDir.toPath(), incremental);
+        AnalysisSession session = new AnalysisSession(options);
+        // The package map of the session is the one built above, so the analysis does not read a package map file
+        session.run(() -> PackageMatcher.useDependencyMap(packageToDependencies));
+        getLog().info("Analyzing " + classesDirectory + " with " + dependencyPaths.size() + " dependency jars");
+        MethodExtractor.process(session);
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.sparkrew.fika.preprocessor;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Caches the packages and classes of each dependency jar, so that only new or changed jars are scanned again.
+ * There is one file per artifact, named after a SHA-256 hash of its coordinates. The file records the size and the
+ * modification time of the jar it was made from, and it is only used while the jar still has both, so a rebuilt
+ * snapshot is scanned again. The cache is only an optimization: files that cannot be read are ignored and replaced.
+ */
+class ArtifactScanCache {
+
+    private static final int MAGIC = 0x46504b43; // "FPKC"
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_EXTENSION = ".scan";
+
+    private final Path directory;
+    private final Log log;
+
+    ArtifactScanCache(Path directory, Log log) {
+        this.directory = directory;
+        this.log = log;
+    }
+
+    /**
+     * Returns the cached contents of the jar, or null if there is no cache file for it or the jar has changed.
+     */
+    JarContents load(String dependencyId, File jarFile) {
+        Path cacheFile = cacheFile(dependencyId);
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            if (!in.readUTF().equals(dependencyId) || in.readLong() != jarFile.length()
+                    || in.readLong() != jarFile.lastModified()) {
+                return null;
+            }
+            JarContents contents = new JarContents(dependencyId);
+            readNames(in, contents.packageNames);
+            readNames(in, contents.classNames);
+            return contents;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not read scan cache " + cacheFile + ", the jar will be scanned again", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the contents of the jar to its cache file. The file is written next to the target and then moved, so
+     * concurrent builds never read a half-written file. Failures are logged.
+     */
+    void store(JarContents contents, File jarFile) {
+        Path tempFile = null;
+        try {
+            Files.createDirectories(directory);
+            tempFile = Files.createTempFile(directory, "artifact", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(contents.dependencyId);
+                out.writeLong(jarFile.length());
+                out.writeLong(jarFile.lastModified());
+                writeNames(out, contents.packageNames);
+                writeNames(out, contents.classNames);
+            }
+            Files.move(tempFile, cacheFile(contents.dependencyId), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write scan cache for " + contents.dependencyId, e);
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // Nothing else to clean up
+                }
+            }
+        }
+    }
+
+    private Path cacheFile(String dependencyId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(dependencyId.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash) + FILE_EXTENSION);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void readNames(DataInputStream in, Set<String> names) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            names.add(in.readUTF());
+        }
+    }
+
+    private static void writeNames(DataOutputStream out, Collection<String> names) throws IOException {
+        out.writeInt(names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.sparkrew.fika.preprocessor;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes the package map in the binary format that the api-finder memory-maps (BinaryPackageMap in the api-finder).
+ * The package and class names are sorted by their UTF-8 bytes so that they can be binary searched in place, and each
+ * coordinate is stored once in a string pool and referenced by index from every package and class it contains.
+ * The layout (big-endian ints) is:
+ * <pre>
+ * int    magic ("FKPM") and format version
+ * int    packageCount, classCount, coordinateCount, referenceCount
+ * int[]  packageNames[packageCount]           offsets of the package names, sorted by their UTF-8 bytes
+ * int[]  packageReferences[packageCount + 1]  start of the coordinates of each package in references
+ * int[]  classNames[classCount]               offsets of the binary class names, sorted by their UTF-8 bytes
+ * int[]  classReferences[classCount + 1]      start of the coordinates of each class in references
+ * int[]  coordinateNames[coordinateCount]     offsets of the interned coordinates
+ * int[]  references[referenceCount]           indices into coordinateNames
+ * byte[] string pool                          each string is an unsigned short length and its UTF-8 bytes
+ * </pre>
+ * The offsets of the names are relative to the start of the string pool. Both sides must be changed together.
+ */
+class BinaryPackageMapWriter {
+
+    static final int MAGIC = 0x464b504d; // "FKPM"
+    static final int FORMAT_VERSION = 2;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> coordinateIndex = new HashMap<>();
+    private final List<Integer> coordinateOffsets = new ArrayList<>();
+    private final List<Integer> references = new ArrayList<>();
+
+    /**
+     * Writes the package map and, if it is not empty, the class table.
+     *
+     * @param packageToDependencies The coordinates of the artifacts that contain each package.
+     * @param classToDependencies   The coordinates of the artifacts that contain each class (can be empty).
+     * @param outputFile            The file to write.
+     */
+    static void write(Map<String, ? extends Collection<String>> packageToDependencies,
+                      Map<String, ? extends Collection<String>> classToDependencies, File outputFile)
+            throws IOException {
+        BinaryPackageMapWriter writer = new BinaryPackageMapWriter();
+        NameTable packages = writer.addTable(packageToDependencies);
+        NameTable classes = writer.addTable(classToDependencies);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(packages.offsets.length);
+            out.writeInt(classes.offsets.length);
+            out.writeInt(writer.coordinateOffsets.size());
+            out.writeInt(writer.references.size());
+            packages.writeTo(out);
+            classes.writeTo(out);
+            for (int offset : writer.coordinateOffsets) {
+                out.writeInt(offset);
+            }
+            for (int reference : writer.references) {
+                out.writeInt(reference);
+            }
+            writer.poolBytes.writeTo(out);
+        }
+    }
+
+    private NameTable addTable(Map<String, ? extends Collection<String>> nameToDependencies) throws IOException {
+        List<byte[]> names = new ArrayList<>();
+        for (String name : nameToDependencies.keySet()) {
+            names.add(name.getBytes(StandardCharsets.UTF_8));
+        }
+        names.sort(Arrays::compareUnsigned);
+
+        NameTable table = new NameTable(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            byte[] name = names.get(i);
+            table.offsets[i] = pool.size();
+            writeString(name);
+            table.references[i] = references.size();
+            // Sorted, so the first coordinate of a name does not depend on the order of the jars
+            SortedSet<String> dependencies =
+                    new TreeSet<>(nameToDependencies.get(new String(name, StandardCharsets.UTF_8)));
+            for (String dependency : dependencies) {
+                Integer index = coordinateIndex.get(dependency);
+                if (index == null) {
+                    index = coordinateOffsets.size();
+                    coordinateIndex.put(dependency, index);
+                    coordinateOffsets.add(pool.size());
+                    writeString(dependency.getBytes(StandardCharsets.UTF_8));
+                }
+                references.add(index);
+            }
+        }
+        table.references[names.size()] = references.size();
+        return table;
+    }
+
+    private void writeString(byte[] bytes) throws IOException {
+        if (bytes.length > 0xffff) {
+            throw new IOException("Name too long for the binary package map: " + bytes.length + " bytes");
+        }
+        pool.writeShort(bytes.length);
+        pool.write(bytes);
+    }
+
+    /**
+     * The name offsets of a table and the start of the coordinates of each name.
+     */
+    private static class NameTable {
+        private final int[] offsets;
+        private final int[] references;
+
+        private NameTable(int size) {
+            offsets = new int[size];
+            references = new int[size + 1];
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (int reference : references) {
+                out.writeInt(reference);
+            }
+        }
+    }
+}
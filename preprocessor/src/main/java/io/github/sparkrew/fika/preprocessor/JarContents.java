@@ -0,0 +1,19 @@
+package io.github.sparkrew.fika.preprocessor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The packages and classes found in one dependency jar.
+ */
+class JarContents {
+
+    final String dependencyId;
+    final Set<String> packageNames = new HashSet<>();
+    final Set<String> classNames = new HashSet<>();
+    boolean readFully = true;
+
+    JarContents(String dependencyId) {
+        this.dependencyId = dependencyId;
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.sparkrew.fika.preprocessor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AbstractPackageMapMojo
+ */
+class AbstractPackageMapMojoTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * A Mojo that only scans, configured as Maven would.
+     */
+    static class ScanningMojo extends AbstractPackageMapMojo {
+
+        ScanningMojo(int threads, File scanCacheDirectory) {
+            this.threads = threads;
+            this.useScanCache = scanCacheDirectory != null;
+            this.scanCacheDirectory = scanCacheDirectory;
+            this.outputFormat = "binary";
+            this.classIndex = true;
+        }
+
+        @Override
+        public void execute() {
+        }
+    }
+
+    /**
+     * Writes a jar with an empty entry for each of the given files.
+     */
+    static File createJar(Path file, String... entries) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file))) {
+            for (String entry : entries) {
+                out.putNextEntry(new JarEntry(entry));
+                out.closeEntry();
+            }
+        }
+        return file.toFile();
+    }
+
+    /**
+     * Creates jars that share packages, so the merged map depends on all of them.
+     */
+    private Map<String, File> createJars(int count) throws IOException {
+        Map<String, File> jarFiles = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            jarFiles.put("com.example:lib" + i + ":jar:1.0", createJar(tempDir.resolve("lib" + i + ".jar"),
+                    "com/example/shared/Shared" + i + ".class",
+                    "com/example/lib" + i + "/Api.class",
+                    "com/example/lib" + i + "/Api$Inner.class",
+                    "META-INF/versions/9/com/example/lib" + i + "/Api.class",
+                    "META-INF/MANIFEST.MF"));
+        }
+        return jarFiles;
+    }
+
+    @Test
+    void testScanAndMerge_OutputDoesNotDependOnTheThreads() throws Exception {
+        Map<String, File> jarFiles = createJars(20);
+        byte[] expected = null;
+        for (int threads : new int[]{1, 2, 8}) {
+            ScanningMojo mojo = new ScanningMojo(threads, null);
+            mojo.scanAndMerge(jarFiles);
+            Path output = tempDir.resolve("package-map-" + threads + ".bin");
+            mojo.writeMapToBinary(output.toFile());
+            byte[] actual = Files.readAllBytes(output);
+            if (expected == null) {
+                expected = actual;
+                Map<String, Set<String>> packageMap = mojo.sortedPackageMap();
+                assertEquals(21, packageMap.size());
+                assertEquals(20, packageMap.get("com.example.shared").size());
+                assertEquals(Set.of("com.example:lib3:jar:1.0"), packageMap.get("com.example.lib3"));
+                assertFalse(packageMap.containsKey("META-INF.versions.9.com.example.lib3"));
+                assertEquals(Set.of("com.example:lib3:jar:1.0"),
+                        mojo.classToDependencies.get("com.example.lib3.Api$Inner"));
+            } else {
+                assertArrayEquals(expected, actual, threads + " threads");
+            }
+        }
+    }
+
+    @Test
+    void testScanAndMerge_ReusesTheScanCache() throws Exception {
+        Map<String, File> jarFiles = createJars(3);
+        File cacheDirectory = tempDir.resolve("scan-cache").toFile();
+        ScanningMojo first = new ScanningMojo(2, cacheDirectory);
+        first.scanAndMerge(jarFiles);
+        try (Stream<Path> cacheFiles = Files.list(cacheDirectory.toPath())) {
+            assertEquals(3, cacheFiles.count());
+        }
+        // A corrupt entry is scanned again and replaced
+        Path corrupt;
+        try (Stream<Path> cacheFiles = Files.list(cacheDirectory.toPath())) {
+            corrupt = cacheFiles.findFirst().orElseThrow();
+        }
+        Files.write(corrupt, new byte[]{1, 2, 3});
+        ScanningMojo second = new ScanningMojo(2, cacheDirectory);
+        second.scanAndMerge(jarFiles);
+        assertTrue(Files.size(corrupt) > 3);
+        assertEquals(first.sortedPackageMap(), second.sortedPackageMap());
+        assertEquals(first.classToDependencies, second.classToDependencies);
+    }
+
+    @Test
+    void testWriteMapToJson_IsSorted() throws Exception {
+        Map<String, File> jarFiles = new LinkedHashMap<>();
+        jarFiles.put("org.b:b:jar:1.0", createJar(tempDir.resolve("b.jar"), "org/z/Z.class", "org/a/A.class"));
+        jarFiles.put("org.a:a:jar:1.0", createJar(tempDir.resolve("a.jar"), "org/z/Y.class"));
+        ScanningMojo mojo = new ScanningMojo(4, null);
+        mojo.scanAndMerge(jarFiles);
+        Path output = tempDir.resolve("package-map.json");
+        mojo.writeMapToJson(mojo.sortedPackageMap(), output.toFile());
+        assertEquals("""
+                {
+                  "org.a" : [ "org.b:b:jar:1.0" ],
+                  "org.z" : [ "org.a:a:jar:1.0", "org.b:b:jar:1.0" ]
+                }""", Files.readString(output).replace(System.lineSeparator(), "\n"));
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.sparkrew.fika.preprocessor;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AggregatePackageMapMojo
+ */
+class AggregatePackageMapMojoTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Artifact artifact(String groupId, String artifactId, String version, File file) {
+        Artifact artifact = new DefaultArtifact(groupId, artifactId, version, Artifact.SCOPE_COMPILE, "jar", null,
+                new DefaultArtifactHandler("jar"));
+        artifact.setFile(file);
+        return artifact;
+    }
+
+    private static MavenProject module(String artifactId, Artifact... artifacts) {
+        MavenProject module = new MavenProject();
+        module.setGroupId("com.example");
+        module.setArtifactId(artifactId);
+        module.setArtifacts(new LinkedHashSet<>(Arrays.asList(artifacts)));
+        return module;
+    }
+
+    private AggregatePackageMapMojo createMojo() {
+        AggregatePackageMapMojo mojo = new AggregatePackageMapMojo();
+        mojo.threads = 2;
+        mojo.useScanCache = false;
+        mojo.outputFormat = "json";
+        return mojo;
+    }
+
+    @Test
+    void testAggregate_ScansEachJarOnceAndAttributesItToTheModules() throws Exception {
+        File lang3 = AbstractPackageMapMojoTest.createJar(tempDir.resolve("commons-lang3.jar"),
+                "org/apache/commons/lang3/StringUtils.class");
+        File guava = AbstractPackageMapMojoTest.createJar(tempDir.resolve("guava.jar"),
+                "com/google/common/collect/ImmutableList.class", "com/google/common/base/Strings.class");
+        // A module of the same reactor, resolved to its classes directory
+        File libClasses = Files.createDirectories(tempDir.resolve("lib/target/classes")).toFile();
+        List<MavenProject> modules = List.of(
+                module("lib", artifact("org.apache.commons", "commons-lang3", "3.12.0", lang3)),
+                module("app", artifact("com.google.guava", "guava", "31.0-jre", guava),
+                        artifact("org.apache.commons", "commons-lang3", "3.12.0", lang3),
+                        artifact("com.example", "lib", "1.0", libClasses)),
+                module("docs"));
+
+        AggregatePackageMapMojo mojo = createMojo();
+        Map<String, File> jarFiles = new LinkedHashMap<>();
+        Map<String, Set<String>> moduleToDependencies = mojo.collectDependencies(modules, jarFiles);
+        assertEquals(Map.of("org.apache.commons:commons-lang3:jar:3.12.0", lang3,
+                "com.google.guava:guava:jar:31.0-jre", guava), jarFiles);
+        assertEquals(List.of("com.example:app", "com.example:docs", "com.example:lib"),
+                new ArrayList<>(moduleToDependencies.keySet()));
+
+        mojo.scanAndMerge(jarFiles);
+        Path output = tempDir.resolve("aggregated-package-map.json");
+        mojo.writeMapToJson(mojo.aggregatedMap(moduleToDependencies), output.toFile());
+        assertEquals("""
+                {
+                  "packages" : {
+                    "com.google.common.base" : [ "com.google.guava:guava:jar:31.0-jre" ],
+                    "com.google.common.collect" : [ "com.google.guava:guava:jar:31.0-jre" ],
+                    "org.apache.commons.lang3" : [ "org.apache.commons:commons-lang3:jar:3.12.0" ]
+                  },
+                  "modules" : {
+                    "com.example:app" : [ "com.google.guava:guava:jar:31.0-jre", "org.apache.commons:commons-lang3:jar:3.12.0" ],
+                    "com.example:docs" : [ ],
+                    "com.example:lib" : [ "org.apache.commons:commons-lang3:jar:3.12.0" ]
+                  }
+                }""", Files.readString(output).replace(System.lineSeparator(), "\n"));
+    }
+}
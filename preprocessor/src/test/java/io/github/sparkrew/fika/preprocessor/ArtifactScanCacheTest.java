@@ -0,0 +1,102 @@
+package io.github.sparkrew.fika.preprocessor;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ArtifactScanCache
+ */
+class ArtifactScanCacheTest {
+
+    private static final String DEPENDENCY_ID = "com.example:lib:jar:1.0";
+
+    @TempDir
+    Path tempDir;
+
+    private JarContents contents() {
+        JarContents contents = new JarContents(DEPENDENCY_ID);
+        contents.packageNames.add("com.example.lib");
+        contents.classNames.add("com.example.lib.Api");
+        contents.classNames.add("com.example.lib.Api$Inner");
+        return contents;
+    }
+
+    private List<Path> cacheFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    void testLoad_ReturnsTheStoredContents() throws IOException {
+        File jar = AbstractPackageMapMojoTest.createJar(tempDir.resolve("lib.jar"), "com/example/lib/Api.class");
+        ArtifactScanCache cache = new ArtifactScanCache(tempDir.resolve("cache"), new SystemStreamLog());
+        assertNull(cache.load(DEPENDENCY_ID, jar));
+        cache.store(contents(), jar);
+
+        JarContents loaded = new ArtifactScanCache(tempDir.resolve("cache"), new SystemStreamLog())
+                .load(DEPENDENCY_ID, jar);
+        assertNotNull(loaded);
+        assertEquals(DEPENDENCY_ID, loaded.dependencyId);
+        assertEquals(Set.of("com.example.lib"), loaded.packageNames);
+        assertEquals(Set.of("com.example.lib.Api", "com.example.lib.Api$Inner"), loaded.classNames);
+        assertNull(cache.load("com.example:other:jar:1.0", jar));
+        // One file per artifact, and no temporary files are left behind
+        assertEquals(1, cacheFiles(tempDir.resolve("cache")).size());
+    }
+
+    @Test
+    void testLoad_IgnoresTheEntryWhenTheJarSizeChanged() throws IOException {
+        Path jarPath = tempDir.resolve("lib.jar");
+        File jar = AbstractPackageMapMojoTest.createJar(jarPath, "com/example/lib/Api.class");
+        long lastModified = jar.lastModified();
+        ArtifactScanCache cache = new ArtifactScanCache(tempDir.resolve("cache"), new SystemStreamLog());
+        cache.store(contents(), jar);
+
+        AbstractPackageMapMojoTest.createJar(jarPath, "com/example/lib/Api.class", "com/example/lib/Added.class");
+        assertTrue(jar.setLastModified(lastModified));
+        assertNull(cache.load(DEPENDENCY_ID, jar));
+    }
+
+    @Test
+    void testLoad_IgnoresTheEntryWhenTheJarWasModified() throws IOException {
+        File jar = AbstractPackageMapMojoTest.createJar(tempDir.resolve("lib.jar"), "com/example/lib/Api.class");
+        ArtifactScanCache cache = new ArtifactScanCache(tempDir.resolve("cache"), new SystemStreamLog());
+        cache.store(contents(), jar);
+
+        assertTrue(jar.setLastModified(jar.lastModified() + 60_000));
+        assertNull(cache.load(DEPENDENCY_ID, jar));
+    }
+
+    @Test
+    void testLoad_RecoversFromACorruptEntry() throws IOException {
+        File jar = AbstractPackageMapMojoTest.createJar(tempDir.resolve("lib.jar"), "com/example/lib/Api.class");
+        Path directory = tempDir.resolve("cache");
+        ArtifactScanCache cache = new ArtifactScanCache(directory, new SystemStreamLog());
+        cache.store(contents(), jar);
+        Path cacheFile = cacheFiles(directory).get(0);
+
+        // Truncated within the names
+        byte[] bytes = Files.readAllBytes(cacheFile);
+        Files.write(cacheFile, Arrays.copyOf(bytes, bytes.length - 5));
+        assertNull(cache.load(DEPENDENCY_ID, jar));
+        // Not a cache file at all
+        Files.write(cacheFile, new byte[]{1, 2, 3});
+        assertNull(cache.load(DEPENDENCY_ID, jar));
+
+        cache.store(contents(), jar);
+        assertNotNull(cache.load(DEPENDENCY_ID, jar));
+    }
+}
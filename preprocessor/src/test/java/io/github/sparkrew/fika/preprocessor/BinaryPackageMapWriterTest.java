@@ -0,0 +1,108 @@
+package io.github.sparkrew.fika.preprocessor;
+
+import io.github.sparkrew.fika.api_finder.AnalysisSession;
+import io.github.sparkrew.fika.api_finder.utils.BinaryPackageMap;
+import io.github.sparkrew.fika.api_finder.utils.PackageMatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trips through BinaryPackageMapWriter and the BinaryPackageMap reader of the api-finder.
+ */
+class BinaryPackageMapWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWrite_LooksUpPackagesAndSharedCoordinates() throws IOException {
+        Path file = tempDir.resolve("package-map.bin");
+        Map<String, List<String>> packageMap = new HashMap<>();
+        packageMap.put("com.google.common", List.of("com.google.guava:guava:jar:31.0-jre"));
+        packageMap.put("com.google.common.collect", List.of("com.google.guava:guava:jar:31.0-jre"));
+        packageMap.put("org.apache.commons.lang3", List.of("org.apache.commons:commons-lang3:jar:3.12.0",
+                "org.apache.commons:commons-lang3:jar:3.11"));
+        packageMap.put("org.été", List.of("org.example:ete:jar:1.0"));
+        packageMap.put("org.empty", List.of());
+        BinaryPackageMapWriter.write(packageMap, Map.of(), file.toFile());
+
+        assertTrue(BinaryPackageMap.isBinaryPackageMap(file));
+        BinaryPackageMap map = BinaryPackageMap.open(file);
+        assertEquals(5, map.size());
+        for (String packageName : packageMap.keySet()) {
+            assertTrue(map.containsPackage(packageName), packageName);
+        }
+        assertFalse(map.containsPackage("com.google"));
+        assertFalse(map.containsPackage("com.google.common.base"));
+        assertFalse(map.containsPackage(""));
+        assertEquals("com.google.guava:guava:jar:31.0-jre", map.getFirstCoordinate("com.google.common"));
+        assertEquals("com.google.guava:guava:jar:31.0-jre", map.getFirstCoordinate("com.google.common.collect"));
+        assertEquals("org.example:ete:jar:1.0", map.getFirstCoordinate("org.été"));
+        assertNull(map.getFirstCoordinate("org.empty"));
+        assertNull(map.getFirstCoordinate("org.missing"));
+        // The coordinates of a package are sorted, so the first one does not depend on the order of the jars
+        assertEquals("org.apache.commons:commons-lang3:jar:3.11", map.getFirstCoordinate("org.apache.commons.lang3"));
+        assertEquals(List.of("org.apache.commons:commons-lang3:jar:3.11",
+                "org.apache.commons:commons-lang3:jar:3.12.0"), map.getCoordinates("org.apache.commons.lang3"));
+        assertFalse(map.hasClassIndex());
+        assertNull(map.getFirstCoordinateOfClass("com.google.common.collect.ImmutableList"));
+    }
+
+    @Test
+    void testWrite_LooksUpClassesOfSplitPackages() throws IOException {
+        Path file = tempDir.resolve("package-map.bin");
+        BinaryPackageMapWriter.write(
+                Map.of("javax.annotation", List.of("javax.annotation:javax.annotation-api:jar:1.3.2",
+                        "com.google.code.findbugs:jsr305:jar:3.0.2")),
+                Map.of("javax.annotation.Nonnull", List.of("com.google.code.findbugs:jsr305:jar:3.0.2"),
+                        "javax.annotation.PostConstruct", List.of("javax.annotation:javax.annotation-api:jar:1.3.2"),
+                        "javax.annotation.Outer$Inner", List.of("com.google.code.findbugs:jsr305:jar:3.0.2")),
+                file.toFile());
+
+        BinaryPackageMap map = BinaryPackageMap.open(file);
+        assertTrue(map.hasClassIndex());
+        assertEquals(List.of("com.google.code.findbugs:jsr305:jar:3.0.2",
+                "javax.annotation:javax.annotation-api:jar:1.3.2"), map.getCoordinates("javax.annotation"));
+        assertEquals("com.google.code.findbugs:jsr305:jar:3.0.2",
+                map.getFirstCoordinateOfClass("javax.annotation.Nonnull"));
+        assertEquals("javax.annotation:javax.annotation-api:jar:1.3.2",
+                map.getFirstCoordinateOfClass("javax.annotation.PostConstruct"));
+        assertEquals(List.of("com.google.code.findbugs:jsr305:jar:3.0.2"),
+                map.getCoordinatesOfClass("javax.annotation.Outer$Inner"));
+        assertNull(map.getFirstCoordinateOfClass("javax.annotation.Missing"));
+        assertEquals(List.of(), map.getCoordinatesOfClass("javax.annotation"));
+    }
+
+    @Test
+    void testWrite_IsReadByThePackageMatcher() throws IOException {
+        Path file = tempDir.resolve("package-map.bin");
+        BinaryPackageMapWriter.write(
+                Map.of("com.example.test", List.of("com.example:test-lib:jar:1.0.0"),
+                        "com.google.common", List.of("com.google.guava:guava:jar:31.0-jre"),
+                        "javax.annotation", List.of("com.google.code.findbugs:jsr305:jar:3.0.2",
+                                "javax.annotation:javax.annotation-api:jar:1.3.2")),
+                Map.of("javax.annotation.PostConstruct", List.of("javax.annotation:javax.annotation-api:jar:1.3.2")),
+                file.toFile());
+
+        new AnalysisSession(null).run(() -> {
+            assertEquals("com.google.guava:guava:31.0-jre", PackageMatcher.getDependencyName("com.google.common", file));
+            assertTrue(PackageMatcher.containsPackage("com.example.test", file));
+            assertFalse(PackageMatcher.containsPackage("org.apache.commons.lang3", file));
+            assertNull(PackageMatcher.getDependencyName("com.nonexistent.package", file));
+            assertEquals("javax.annotation:javax.annotation-api:1.3.2",
+                    PackageMatcher.getDependencyNameOfClass("javax.annotation.PostConstruct", file));
+            // Classes that are not in the index fall back to the first dependency of their package
+            assertEquals("com.google.code.findbugs:jsr305:3.0.2",
+                    PackageMatcher.getDependencyNameOfClass("javax.annotation.Nonnull", file));
+            assertNull(PackageMatcher.getDependencyNameOfClass("Unnamed", file));
+        });
+    }
+}